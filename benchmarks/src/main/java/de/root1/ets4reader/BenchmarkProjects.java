@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Synthetic projects of different sizes used by the benchmarks. Each project
+ * is generated once per JVM into a temp folder.
+ *
+ * @author achristian
+ */
+class BenchmarkProjects {
+
+    /**
+     * 1 area, 2 lines, 32 devices, 500 group addresses, 10 applications, 50
+     * user configuration entries
+     */
+    static final String SMALL = "small";
+
+    /**
+     * 4 areas, 8 lines, 1024 devices, 5000 group addresses, 50 applications,
+     * 500 user configuration entries
+     */
+    static final String MEDIUM = "medium";
+
+    /**
+     * 8 areas, 16 lines, 8192 devices, 30000 group addresses, 200
+     * applications, 3000 user configuration entries
+     */
+    static final String LARGE = "large";
+
+    private static final Map<String, File> files = new HashMap<>();
+
+    /**
+     * Gets the .knxproj file of a project, generates it if required
+     *
+     * @param size one of {@link #SMALL}, {@link #MEDIUM}, {@link #LARGE}
+     * @return .knxproj file
+     * @throws IOException
+     */
+    static synchronized File get(String size) throws IOException {
+        File file = files.get(size);
+        if (file == null) {
+            SyntheticProjectGenerator generator = new SyntheticProjectGenerator();
+            switch (size) {
+                case SMALL:
+                    generator.setAreas(1).setLinesPerArea(2).setDevicesPerLine(16).setGroupAddresses(500).setApplications(10).setUserConfigEntries(50);
+                    break;
+                case MEDIUM:
+                    generator.setAreas(4).setLinesPerArea(8).setDevicesPerLine(32).setGroupAddresses(5000).setApplications(50).setUserConfigEntries(500);
+                    break;
+                case LARGE:
+                    generator.setAreas(8).setLinesPerArea(16).setDevicesPerLine(64).setGroupAddresses(30000).setApplications(200).setUserConfigEntries(3000);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown project size: " + size);
+            }
+            file = File.createTempFile("benchmark-" + size + "-", ".knxproj");
+            file.deleteOnExit();
+            new File(file.getAbsolutePath() + ".user.xml").deleteOnExit();
+            generator.write(file);
+            files.put(size, file);
+        }
+        return file;
+    }
+
+}
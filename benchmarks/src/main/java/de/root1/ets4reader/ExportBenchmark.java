@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jdom2.JDOMException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exports a read project with the built-in exporters, compared to a loop
+ * formatting each group address with {@link String#format(String, Object...)}
+ *
+ * @author achristian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({BenchmarkProjects.SMALL, BenchmarkProjects.LARGE})
+    public String size;
+
+    @Param({"csv", "jsonl", "binary", "format"})
+    public String format;
+
+    private List<Project> projects;
+
+    @Setup
+    public void setup() throws IOException, JDOMException {
+        projects = new KnxProjReader(BenchmarkProjects.get(size)).getProjects();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        switch (format) {
+            case "csv":
+                try (ProjectExporter exporter = new CsvExporter(out)) {
+                    exporter.export(projects);
+                }
+                break;
+            case "jsonl":
+                try (ProjectExporter exporter = new JsonLinesExporter(out)) {
+                    exporter.export(projects);
+                }
+                break;
+            case "binary":
+                try (ProjectExporter exporter = new BinaryExporter(out)) {
+                    exporter.export(projects);
+                }
+                break;
+            default:
+                // what callers did before the exporters existed
+                try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "UTF-8"))) {
+                    for (Project project : projects) {
+                        for (GroupAddress ga : project.getGroupaddressList()) {
+                            writer.println(String.format("%s,%s,%s,%s,%s", ga.getAddress(), ga.getName(), ga.getDataPointType(), ga.isConnected(), ga.isUserConfigured()));
+                        }
+                    }
+                }
+        }
+        return out.count;
+    }
+
+    /**
+     * Discards all data, counting the bytes
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+}
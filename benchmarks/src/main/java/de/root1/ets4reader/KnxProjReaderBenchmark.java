@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jdom2.JDOMException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a complete project with {@link KnxProjReader}
+ *
+ * @author achristian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnxProjReaderBenchmark {
+
+    @Param({BenchmarkProjects.SMALL, BenchmarkProjects.MEDIUM, BenchmarkProjects.LARGE})
+    public String size;
+
+    @Param({"true", "false"})
+    public boolean streamingParser;
+
+    @Param({"false", "true"})
+    public boolean extractToTempFolder;
+
+    private File knxprojFile;
+    private ReaderOptions options;
+
+    @Setup
+    public void setup() throws IOException, JDOMException {
+        knxprojFile = BenchmarkProjects.get(size);
+        options = new ReaderOptions()
+                .setStreamingParser(streamingParser)
+                .setExtractToTempFolder(extractToTempFolder);
+        // creates the user configuration, so all iterations do the same work
+        new KnxProjReader(knxprojFile, options);
+    }
+
+    @Benchmark
+    public KnxProjReader read() throws IOException, JDOMException {
+        return new KnxProjReader(knxprojFile, options);
+    }
+
+}
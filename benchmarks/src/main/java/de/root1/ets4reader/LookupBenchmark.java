@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jdom2.JDOMException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up group addresses of a read project by address, as done for each
+ * received telegram, looks up devices by the telegram's source address and
+ * queries group addresses by middle group and DPT
+ *
+ * @author achristian
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({BenchmarkProjects.SMALL, BenchmarkProjects.LARGE})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean compactGroupAddresses;
+
+    private Project project;
+    private String[] addresses;
+    private int next;
+    private int nextMiddleGroup;
+    private int[] individualAddresses;
+    private int nextDevice;
+    private GroupAddress[] resolved;
+    private int nextResolved;
+
+    @Setup
+    public void setup() throws IOException, JDOMException {
+        ReaderOptions options = new ReaderOptions().setCompactGroupAddresses(compactGroupAddresses);
+        project = new KnxProjReader(BenchmarkProjects.get(size), options).getProjects().get(0);
+        List<GroupAddress> groupAddresses = project.getGroupaddressList();
+        addresses = new String[groupAddresses.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            // new instances, as addresses of received telegrams would be
+            addresses[i] = new String(groupAddresses.get(i).getAddress());
+        }
+        List<Device> devices = project.getDeviceList();
+        individualAddresses = new int[devices.size()];
+        for (int i = 0; i < individualAddresses.length; i++) {
+            individualAddresses[i] = devices.get(i).getIndividualAddress();
+        }
+        // as a telegram handler would keep them
+        resolved = groupAddresses.toArray(new GroupAddress[groupAddresses.size()]);
+    }
+
+    @Benchmark
+    public GroupAddress getGroupAddress() {
+        String address = addresses[next];
+        next = next + 1 == addresses.length ? 0 : next + 1;
+        return project.getGroupAddress(address);
+    }
+
+    @Benchmark
+    public Device getDeviceByIndividualAddress() {
+        int individualAddress = individualAddresses[nextDevice];
+        nextDevice = nextDevice + 1 == individualAddresses.length ? 0 : nextDevice + 1;
+        return project.getDevice(individualAddress);
+    }
+
+    @Benchmark
+    public List<GroupAddress> getGroupAddressesOfMiddleGroup() {
+        int middleGroup = nextMiddleGroup;
+        nextMiddleGroup = (nextMiddleGroup + 1) & 0xFF;
+        return project.getGroupAddresses(middleGroup >>> 3, middleGroup & 0x07);
+    }
+
+    @Benchmark
+    public List<GroupAddress> getGroupAddressesByDataPointType() {
+        return project.getGroupAddressesByDataPointType(9, 1);
+    }
+
+    @Benchmark
+    public String getDataPointTypeOfGroupAddress() {
+        GroupAddress groupAddress = resolved[nextResolved];
+        nextResolved = nextResolved + 1 == resolved.length ? 0 : nextResolved + 1;
+        return groupAddress.getDataPointType();
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jdom2.JDOMException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the phases of reading a project separately: extracting the
+ * archive, parsing the project data, resolving DPTs and applying the user
+ * configuration
+ *
+ * @author achristian
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhaseBenchmark {
+
+    private static final String PROJECT_FOLDER = "P-05FA";
+
+    @Param({BenchmarkProjects.SMALL, BenchmarkProjects.LARGE})
+    public String size;
+
+    @Param({"true", "false"})
+    public boolean streamingParser;
+
+    private File knxprojFile;
+    private ReaderOptions options;
+    private KnxProjReader reader;
+    private ProjectArchive archive;
+    private Project template;
+    private Project resolvedTemplate;
+
+    @Setup
+    public void setup() throws IOException, JDOMException {
+        knxprojFile = BenchmarkProjects.get(size);
+        options = new ReaderOptions().setStreamingParser(streamingParser);
+        // also adds the entries for group addresses with missing DPT to the
+        // user configuration, so it isn't written during the benchmark
+        reader = new KnxProjReader(knxprojFile, options);
+        archive = new ZipProjectArchive(knxprojFile);
+        template = new Project(archive, PROJECT_FOLDER, options, new SymbolTable());
+
+        List<Project> resolved = new ArrayList<>();
+        resolved.add(template.copy());
+        new DptResolver(archive, options, null, new SymbolTable(), new LoadStatistics()).resolve(resolved);
+        resolvedTemplate = resolved.get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        archive.close();
+    }
+
+    /**
+     * Projects without resolved DPTs, created before each invocation
+     */
+    @State(Scope.Thread)
+    public static class UnresolvedProjects {
+
+        List<Project> projects;
+
+        @Setup(Level.Invocation)
+        public void setup(PhaseBenchmark benchmark) {
+            projects = new ArrayList<>();
+            projects.add(benchmark.template.copy());
+        }
+    }
+
+    /**
+     * Projects with resolved DPTs, but without user configuration applied,
+     * created before each invocation
+     */
+    @State(Scope.Thread)
+    public static class UnconfiguredProjects {
+
+        Project project;
+
+        @Setup(Level.Invocation)
+        public void setup(PhaseBenchmark benchmark) {
+            project = benchmark.template.copy();
+            // copy() doesn't keep the resolved state, group addresses are in the same order
+            List<GroupAddress> resolved = benchmark.resolvedTemplate.getGroupaddressList();
+            List<GroupAddress> groupAddresses = project.getGroupaddressList();
+            for (int i = 0; i < groupAddresses.size(); i++) {
+                groupAddresses.get(i).setDataPointType(resolved.get(i).getDpt());
+                groupAddresses.get(i).setConnected(resolved.get(i).isConnected());
+            }
+        }
+    }
+
+    @Benchmark
+    public void extract() throws IOException {
+        ReaderOptions extractOptions = new ReaderOptions().setExtractToTempFolder(true);
+        // closing deletes the temp folder again
+        reader.openArchive(knxprojFile, extractOptions).close();
+    }
+
+    @Benchmark
+    public Project parseProject() throws IOException, JDOMException {
+        return new Project(archive, PROJECT_FOLDER, options, new SymbolTable());
+    }
+
+    @Benchmark
+    public List<Project> readDpt(UnresolvedProjects unresolved) throws IOException, JDOMException {
+        new DptResolver(archive, options, null, new SymbolTable(), new LoadStatistics()).resolve(unresolved.projects);
+        return unresolved.projects;
+    }
+
+    @Benchmark
+    public Project readUserConfiguration(UnconfiguredProjects unconfigured) throws IOException, JDOMException {
+        UserConfiguration.read(UserConfiguration.getFile(knxprojFile)).merge(unconfigured.project, options.isPurgeUserConfiguration());
+        return unconfigured.project;
+    }
+
+}
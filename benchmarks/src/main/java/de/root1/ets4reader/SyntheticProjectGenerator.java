@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes synthetic .knxproj files with the structure of ETS4 projects:
+ * Project.xml and 0.xml of a single project, and manufacturer application
+ * files with ComObjectTable and ComObjectRefs. Optionally, a .user.xml file
+ * with DPTs and names of some group addresses is written next to it. Content
+ * is random, but reproducible for the same settings and seed.
+ * <p>
+ * Usage from command line:
+ * <pre>
+ * java -cp benchmarks.jar de.root1.ets4reader.SyntheticProjectGenerator out.knxproj [areas lines devices groupaddresses applications]
+ * </pre>
+ *
+ * @author achristian
+ */
+public class SyntheticProjectGenerator {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String NS = "http://knx.org/xml/project/12";
+    private static final String PROJECT_ID = "P-05FA";
+
+    /**
+     * DPTs of ComObjects, null for a ComObject without DPT
+     */
+    private static final String[] DPTS = {"DPST-1-1", "DPST-5-1", "DPT-5", "DPST-9-1 DPST-9-2", null, "DPST-14-68"};
+
+    /**
+     * DPTs of user configuration entries
+     */
+    private static final String[] USER_DPTS = {"1.001", "5.001", "9.001", "14.068"};
+
+    private int areas = 2;
+    private int linesPerArea = 4;
+    private int devicesPerLine = 16;
+    private int groupAddresses = 1000;
+    private int comObjectInstanceRefsPerDevice = 4;
+    private int maxConnectorsPerComObjectInstanceRef = 3;
+    private int applications = 20;
+    private int comObjectsPerApplication = 12;
+    private int userConfigEntries = 0;
+    private long seed = 42;
+
+    public SyntheticProjectGenerator setAreas(int areas) {
+        this.areas = areas;
+        return this;
+    }
+
+    public SyntheticProjectGenerator setLinesPerArea(int linesPerArea) {
+        this.linesPerArea = linesPerArea;
+        return this;
+    }
+
+    /**
+     * @param devicesPerLine number of devices per line, max. 255
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setDevicesPerLine(int devicesPerLine) {
+        this.devicesPerLine = devicesPerLine;
+        return this;
+    }
+
+    /**
+     * @param groupAddresses number of group addresses, max. 65536
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setGroupAddresses(int groupAddresses) {
+        this.groupAddresses = groupAddresses;
+        return this;
+    }
+
+    /**
+     * @param comObjectInstanceRefsPerDevice number of used ComObjects per
+     * device, max. number of ComObjects per application
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setComObjectInstanceRefsPerDevice(int comObjectInstanceRefsPerDevice) {
+        this.comObjectInstanceRefsPerDevice = comObjectInstanceRefsPerDevice;
+        return this;
+    }
+
+    /**
+     * @param maxConnectorsPerComObjectInstanceRef each ComObjectInstanceRef
+     * gets 0 to this number of group addresses connected
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setMaxConnectorsPerComObjectInstanceRef(int maxConnectorsPerComObjectInstanceRef) {
+        this.maxConnectorsPerComObjectInstanceRef = maxConnectorsPerComObjectInstanceRef;
+        return this;
+    }
+
+    /**
+     * @param applications number of distinct manufacturer application files
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setApplications(int applications) {
+        this.applications = applications;
+        return this;
+    }
+
+    public SyntheticProjectGenerator setComObjectsPerApplication(int comObjectsPerApplication) {
+        this.comObjectsPerApplication = comObjectsPerApplication;
+        return this;
+    }
+
+    /**
+     * @param userConfigEntries number of entries with DPT and name in the
+     * .user.xml file, 0 for no .user.xml file
+     * @return this generator
+     */
+    public SyntheticProjectGenerator setUserConfigEntries(int userConfigEntries) {
+        this.userConfigEntries = userConfigEntries;
+        return this;
+    }
+
+    public SyntheticProjectGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Writes the .knxproj file and its .user.xml file
+     *
+     * @param knxprojFile file to write, is replaced if existing. An existing
+     * .user.xml file is replaced, or deleted if there are no user
+     * configuration entries.
+     * @throws IOException
+     */
+    public void write(File knxprojFile) throws IOException {
+        if (groupAddresses > 0x10000) {
+            throw new IllegalArgumentException("Max. 65536 group addresses possible: " + groupAddresses);
+        }
+        if (devicesPerLine > 255) {
+            throw new IllegalArgumentException("Max. 255 devices per line possible: " + devicesPerLine);
+        }
+        if (comObjectInstanceRefsPerDevice > comObjectsPerApplication) {
+            throw new IllegalArgumentException("More ComObjectInstanceRefs per device than ComObjects per application");
+        }
+        if (userConfigEntries > groupAddresses) {
+            throw new IllegalArgumentException("More user configuration entries than group addresses");
+        }
+        Random random = new Random(seed);
+
+        List<String> applicationIds = new ArrayList<>();
+        for (int i = 0; i < applications; i++) {
+            String manufacturerId = String.format("M-%04X", 0x83 + i % 3);
+            applicationIds.add(String.format("%s_A-%04X-%02X-%04X", manufacturerId, 0x30 + i, 0x20, 0xFCC0 + i));
+        }
+
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(knxprojFile))) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(zip, UTF8), 64 * 1024);
+
+            zip.putNextEntry(new ZipEntry(PROJECT_ID + "/Project.xml"));
+            writeProjectFile(out);
+            out.flush();
+
+            for (String applicationId : applicationIds) {
+                zip.putNextEntry(new ZipEntry(applicationId.substring(0, 6) + "/" + applicationId + ".xml"));
+                writeApplicationFile(out, applicationId);
+                out.flush();
+            }
+
+            zip.putNextEntry(new ZipEntry(PROJECT_ID + "/0.xml"));
+            writeDataFile(out, applicationIds, random);
+            out.flush();
+
+            zip.putNextEntry(new ZipEntry("knx_master.xml"));
+            out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<KNX xmlns=\"" + NS + "\"/>");
+            out.flush();
+        }
+
+        File userConfigFile = new File(knxprojFile.getAbsolutePath() + ".user.xml");
+        if (userConfigEntries == 0) {
+            userConfigFile.delete();
+        } else {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(userConfigFile), UTF8))) {
+                writeUserConfigFile(out, random);
+            }
+        }
+    }
+
+    private void writeUserConfigFile(Writer out, Random random) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<knxprojectuserconfiguration>\n");
+        // entries are spread over all group addresses, every other one renames its group address
+        for (int i = 0; i < userConfigEntries; i++) {
+            int ga = (int) ((long) i * groupAddresses / userConfigEntries);
+            String address = (ga >>> 11 & 0x1F) + "/" + (ga >>> 8 & 0x07) + "/" + (ga & 0xFF);
+            String name = i % 2 == 0 ? " name=\"User group address " + ga + "\"" : "";
+            out.write("  <ga address=\"" + address + "\" dpt=\"" + USER_DPTS[random.nextInt(USER_DPTS.length)] + "\"" + name + " />\n");
+        }
+        out.write("</knxprojectuserconfiguration>\n");
+    }
+
+    private void writeProjectFile(Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        out.write("<KNX xmlns=\"" + NS + "\"><Project Id=\"" + PROJECT_ID + "\">");
+        out.write("<ProjectInformation Name=\"Synthetic Project\" LastModified=\"2015-03-01T10:11:12.123Z\" ProjectStart=\"2014-01-01T00:00:00Z\"/>");
+        out.write("</Project></KNX>");
+    }
+
+    private void writeApplicationFile(Writer out, String applicationId) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        out.write("<KNX xmlns=\"" + NS + "\"><ManufacturerData><Manufacturer RefId=\"" + applicationId.substring(0, 6) + "\">");
+        out.write("<ApplicationPrograms><ApplicationProgram Id=\"" + applicationId + "\"><Static><Parameters>");
+        // real application files have lots of content in front of the ComObjects
+        for (int p = 0; p < 50; p++) {
+            out.write("<Parameter Id=\"" + applicationId + "_P-" + p + "\" Name=\"Parameter " + p + "\" Text=\"Text\"/>");
+        }
+        out.write("</Parameters><ComObjectTable>");
+        for (int o = 0; o < comObjectsPerApplication; o++) {
+            String dpt = DPTS[o % DPTS.length];
+            out.write("<ComObject Id=\"" + applicationId + "_O-" + o + "\" Name=\"Object " + o + "\""
+                    + (dpt != null ? " DatapointType=\"" + dpt + "\"" : "") + "/>");
+        }
+        out.write("</ComObjectTable><ComObjectRefs>");
+        for (int o = 0; o < comObjectsPerApplication; o++) {
+            for (int r = 0; r < 2; r++) {
+                // some refs override the DPT of their ComObject
+                String dpt = (o + r) % 7 == 3 ? " DatapointType=\"DPST-3-7\"" : "";
+                out.write("<ComObjectRef Id=\"" + applicationId + "_O-" + o + "_R-" + r + "\" RefId=\"" + applicationId + "_O-" + o + "\"" + dpt + "/>");
+            }
+        }
+        out.write("</ComObjectRefs></Static><Dynamic><ChannelIndependentBlock/></Dynamic>");
+        out.write("</ApplicationProgram></ApplicationPrograms></Manufacturer></ManufacturerData></KNX>");
+    }
+
+    private void writeDataFile(Writer out, List<String> applicationIds, Random random) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        out.write("<KNX xmlns=\"" + NS + "\"><Project Id=\"" + PROJECT_ID + "\"><Installations>");
+        out.write("<Installation Name=\"\" BCUKey=\"4294967295\"><Topology>");
+
+        List<Integer> comObjects = new ArrayList<>();
+        for (int o = 0; o < comObjectsPerApplication; o++) {
+            comObjects.add(o);
+        }
+
+        for (int area = 1; area <= areas; area++) {
+            out.write("<Area Id=\"" + PROJECT_ID + "-0_A-" + area + "\" Name=\"Area " + area + "\" Address=\"" + area + "\">");
+            for (int line = 0; line < linesPerArea; line++) {
+                out.write("<Line Id=\"" + PROJECT_ID + "-0_L-" + area + "-" + line + "\" Name=\"Line " + line + "\" Address=\"" + line + "\" MediumTypeRefId=\"MT-0\">");
+                for (int device = 1; device <= devicesPerLine; device++) {
+                    String applicationId = applicationIds.get(random.nextInt(applicationIds.size()));
+                    // a few devices are not yet addressed or have no name
+                    String address = random.nextInt(20) == 0 ? "" : " Address=\"" + device + "\"";
+                    String name = random.nextInt(10) == 0 ? "" : " Name=\"Device " + area + "." + line + "." + device + "\"";
+                    out.write("<DeviceInstance Id=\"" + PROJECT_ID + "-0_DI-" + area + "-" + line + "-" + device + "\"" + name + address
+                            + " ProductRefId=\"" + applicationId.substring(0, 6) + "_H-1_P-1\"><ComObjectInstanceRefs>");
+
+                    Collections.shuffle(comObjects, random);
+                    for (int i = 0; i < comObjectInstanceRefsPerDevice; i++) {
+                        int comObject = comObjects.get(i);
+                        // some DPTs are defined in ETS by the user
+                        String dpt = random.nextInt(10) == 0 ? " DatapointType=\"DPST-7-1\"" : "";
+                        out.write("<ComObjectInstanceRef RefId=\"" + applicationId + "_O-" + comObject + "_R-" + random.nextInt(2) + "\"" + dpt + " IsActive=\"true\"><Connectors>");
+                        int connectors = groupAddresses > 0 ? random.nextInt(maxConnectorsPerComObjectInstanceRef + 1) : 0;
+                        for (int c = 0; c < connectors; c++) {
+                            out.write("<" + (c == 0 ? "Send" : "Receive") + " GroupAddressRefId=\"" + PROJECT_ID + "-0_GA-" + random.nextInt(groupAddresses) + "\"/>");
+                        }
+                        out.write("</Connectors></ComObjectInstanceRef>");
+                    }
+                    out.write("</ComObjectInstanceRefs></DeviceInstance>");
+                }
+                out.write("</Line>");
+            }
+            out.write("</Area>");
+        }
+        out.write("</Topology><Buildings/><GroupAddresses><GroupRanges>");
+
+        // group addresses are numbered through, one middle group range per 256 addresses
+        int main = -1;
+        int middle = -1;
+        for (int ga = 0; ga < groupAddresses; ga++) {
+            int gaMain = ga >>> 11 & 0x1F;
+            int gaMiddle = ga >>> 8 & 0x07;
+            if (gaMain != main || gaMiddle != middle) {
+                if (middle != -1) {
+                    out.write("</GroupRange>");
+                }
+                if (gaMain != main) {
+                    if (main != -1) {
+                        out.write("</GroupRange>");
+                    }
+                    main = gaMain;
+                    out.write("<GroupRange Id=\"" + PROJECT_ID + "-0_GR-" + main + "\" Name=\"Main " + main + "\" RangeStart=\"" + (main << 11) + "\" RangeEnd=\"" + ((main << 11) + 2047) + "\">");
+                }
+                middle = gaMiddle;
+                int start = main << 11 | middle << 8;
+                out.write("<GroupRange Id=\"" + PROJECT_ID + "-0_GR-" + main + "-" + middle + "\" Name=\"Middle " + main + "/" + middle + "\" RangeStart=\"" + start + "\" RangeEnd=\"" + (start + 255) + "\">");
+            }
+            out.write("<GroupAddress Id=\"" + PROJECT_ID + "-0_GA-" + ga + "\" Address=\"" + ga + "\" Name=\"Group address " + ga + "\" Puid=\"" + (ga + 1) + "\"/>");
+        }
+        if (middle != -1) {
+            out.write("</GroupRange></GroupRange>");
+        }
+        out.write("</GroupRanges></GroupAddresses></Installation></Installations></Project></KNX>");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 6) {
+            System.err.println("Usage: SyntheticProjectGenerator <out.knxproj> [<areas> <lines per area> <devices per line> <group addresses> <applications>]");
+            System.exit(1);
+        }
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator();
+        if (args.length == 6) {
+            generator.setAreas(Integer.parseInt(args[1]))
+                    .setLinesPerArea(Integer.parseInt(args[2]))
+                    .setDevicesPerLine(Integer.parseInt(args[3]))
+                    .setGroupAddresses(Integer.parseInt(args[4]))
+                    .setApplications(Integer.parseInt(args[5]));
+        }
+        generator.write(new File(args[0]));
+    }
+
+}
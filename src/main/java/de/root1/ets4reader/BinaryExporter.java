@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Exports projects in a compact binary format. Group addresses in the form
+ * main/middle/sub are written as raw 16 bit address.
+ * <p>
+ * Format (big endian):
+ * <pre>
+ * int     magic "KPEX"
+ * short   version
+ * records, each starting with a byte tag:
+ *   1 = project
+ *     string  internal ID
+ *     string  name
+ *     long    last modification, milliseconds since 1970-01-01 UTC
+ *     long    project start
+ *   2 = device
+ *     int     packed individual address, -1 if no member address
+ *     string  address with dot-notation
+ *     string  name
+ *   3 = group address
+ *     byte    flags: 1=connected, 2=user configured, 4=textual address
+ *     short   raw address, or string address if flag 4 is set
+ *     string  name
+ *     short   DPT main type, -1 if unspecified
+ *     short   DPT sub type, -1 if unspecified
+ *   0 = end of export
+ * </pre> Strings are written as unsigned LEB128 varint of the UTF-8 length
+ * plus one, followed by the UTF-8 bytes. A length of 0 stands for null.
+ * Devices and group addresses belong to the project written before them.
+ *
+ * @author achristian
+ */
+public class BinaryExporter extends ProjectExporter {
+
+    private static final int MAGIC = 0x4B504558; // KPEX
+    private static final short VERSION = 1;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_PROJECT = 1;
+    private static final int TAG_DEVICE = 2;
+    private static final int TAG_GROUPADDRESS = 3;
+
+    private static final int FLAG_CONNECTED = 1;
+    private static final int FLAG_USERCONFIGURED = 2;
+    private static final int FLAG_TEXTUAL_ADDRESS = 4;
+
+    /**
+     *
+     * @param out stream to write to, closed by {@link #close()}
+     */
+    public BinaryExporter(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     *
+     * @param channel channel to write to, closed by {@link #close()}
+     */
+    public BinaryExporter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    void writeStart() throws IOException {
+        writeInt(MAGIC);
+        writeShort(VERSION);
+    }
+
+    @Override
+    void writeProject(Project project) throws IOException {
+        writeByte(TAG_PROJECT);
+        writeString(project.getInternalId());
+        writeString(project.getName());
+        writeLong(project.getLastModified().getTimeInMillis());
+        writeLong(project.getProjectStart().getTimeInMillis());
+    }
+
+    @Override
+    void writeDevice(Project project, Device device) throws IOException {
+        writeByte(TAG_DEVICE);
+        writeInt(device.getIndividualAddress());
+        writeString(device.getAddress());
+        writeString(device.getName());
+    }
+
+    @Override
+    void writeGroupAddress(Project project, GroupAddress groupAddress) throws IOException {
+        String address = groupAddress.getAddress();
+        int raw = GroupAddressTable.toRawAddress(address);
+        int flags = (groupAddress.isConnected() ? FLAG_CONNECTED : 0)
+                | (groupAddress.isUserConfigured() ? FLAG_USERCONFIGURED : 0)
+                | (raw == -1 ? FLAG_TEXTUAL_ADDRESS : 0);
+
+        writeByte(TAG_GROUPADDRESS);
+        writeByte(flags);
+        if (raw == -1) {
+            writeString(address);
+        } else {
+            writeShort(raw);
+        }
+        writeString(groupAddress.getDefinedName());
+        writeShort(groupAddress.getMainType());
+        writeShort(groupAddress.getSubType());
+    }
+
+    @Override
+    void writeEnd() throws IOException {
+        writeByte(TAG_END);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(utf8Length(value) + 1);
+        writeUtf8(value);
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+}
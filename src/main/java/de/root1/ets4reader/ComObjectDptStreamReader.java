@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the DPTs of the ComObjectRefs of a manufacturer application file
+ * (M-xxxx/M-xxxx_A-....xml) with a StAX stream reader. Only the ComObjectTable
+ * and ComObjectRefs sections are read, the rest of the file is skipped and
+ * reading stops as soon as both sections are done.
+ * <pre>
+ * KNX
+ *   ManufacturerData
+ *     Manufacturer
+ *       ApplicationPrograms
+ *         ApplicationProgram
+ *           Static
+ *             ComObjectTable
+ *               ComObject
+ *             ComObjectRefs
+ *               ComObjectRef
+ * </pre>
+ *
+ * @author achristian
+ */
+class ComObjectDptStreamReader {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final SymbolTable symbols;
+
+    /**
+     * namespace of the root element
+     */
+    private String ns;
+
+    /**
+     *
+     * @param symbols symbol table to canonicalize IDs and DPTs with
+     */
+    ComObjectDptStreamReader(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Reads the ComObjectRef -> DPT table
+     *
+     * @param in stream of the application file
+     * @param mFile name of the application file, used for logging
+     * @param refFilter if not null, only ComObjectRefs with an ID contained in
+     * this set are put into the table
+     * @return ComObjectRef -> DPT
+     * @throws XMLStreamException
+     */
+    Map<String, String> read(InputStream in, String mFile, Set<String> refFilter) throws XMLStreamException {
+
+        // ComObjectRef -> DPT
+        Map<String, String> cache = new HashMap<>();
+
+        XMLStreamReader reader = Utils.createXMLStreamReader(in);
+        try {
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                return cache;
+            }
+            ns = Utils.namespaceOf(reader);
+
+            if (child(reader, "ManufacturerData")
+                    && child(reader, "Manufacturer")
+                    && child(reader, "ApplicationPrograms")
+                    && child(reader, "ApplicationProgram")
+                    && child(reader, "Static")) {
+                readStatic(reader, mFile, refFilter, cache);
+            } else {
+                log.warn("No ApplicationProgram/Static found in {}", mFile);
+            }
+        } finally {
+            reader.close();
+        }
+        return cache;
+    }
+
+    private void readStatic(XMLStreamReader reader, String mFile, Set<String> refFilter, Map<String, String> cache) throws XMLStreamException {
+
+        // ComObject ID -> DPT
+        Map<String, String> comObjectDptCache = new HashMap<>();
+
+        // ComObjectRefs without own DPT: [refId, comObjectId]
+        List<String[]> inheritingRefs = new ArrayList<>();
+
+        boolean comObjectTableDone = false;
+        boolean comObjectRefsDone = false;
+
+        while (!(comObjectTableDone && comObjectRefsDone) && Utils.nextChild(reader)) {
+
+            if (!comObjectTableDone && isElement(reader, "ComObjectTable")) {
+                // Cache all comobject's DPTs
+                while (Utils.nextChild(reader)) {
+                    if (isElement(reader, "ComObject")) {
+                        String id = reader.getAttributeValue(null, "Id");
+                        String dpt = reader.getAttributeValue(null, "DatapointType");
+                        if (dpt == null) {
+                            log.debug("ManufacturerDevice File {} comobject id={} has no DPT?!", mFile, id);
+                        }
+                        comObjectDptCache.put(id, symbols.intern(dpt));
+                    }
+                    Utils.skip(reader);
+                }
+                comObjectTableDone = true;
+
+            } else if (!comObjectRefsDone && isElement(reader, "ComObjectRefs")) {
+                while (Utils.nextChild(reader)) {
+                    if (isElement(reader, "ComObjectRef")) {
+                        String refId = reader.getAttributeValue(null, "Id");
+                        if (refFilter == null || refFilter.contains(refId)) {
+                            refId = symbols.intern(refId);
+                            String dpt = reader.getAttributeValue(null, "DatapointType");
+                            if (dpt == null) {
+                                // resolved with comobject cache when both sections are read
+                                inheritingRefs.add(new String[]{refId, reader.getAttributeValue(null, "RefId")});
+                            } else {
+                                cache.put(refId, symbols.intern(dpt));
+                            }
+                        }
+                    }
+                    Utils.skip(reader);
+                }
+                comObjectRefsDone = true;
+
+            } else {
+                Utils.skip(reader);
+            }
+        }
+
+        for (String[] ref : inheritingRefs) {
+            // ask comobject cache
+            String dpt = comObjectDptCache.get(ref[1]);
+            if (dpt == null) {
+                log.debug("ComObjRef '{}' has no DPT??? file: {}", ref[0], mFile);
+            }
+            cache.put(ref[0], dpt);
+        }
+    }
+
+    /**
+     * Moves to the first child element with the given name
+     *
+     * @param reader
+     * @param localName
+     * @return true, if reader is positioned on the start of the child element
+     * @throws XMLStreamException
+     */
+    private boolean child(XMLStreamReader reader, String localName) throws XMLStreamException {
+        while (Utils.nextChild(reader)) {
+            if (isElement(reader, localName)) {
+                return true;
+            }
+            Utils.skip(reader);
+        }
+        return false;
+    }
+
+    private boolean isElement(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && ns.equals(Utils.namespaceOf(reader));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Archive which records the bytes read from each entry in the load
+ * statistics. Reading an entry stops with an
+ * {@link java.io.InterruptedIOException} once the thread has been
+ * interrupted, so cancelling a read also stops within large entries.
+ *
+ * @author achristian
+ */
+class CountingProjectArchive implements ProjectArchive {
+
+    private final ProjectArchive archive;
+    private final LoadStatistics statistics;
+
+    /**
+     *
+     * @param archive archive to read from, is closed with this archive
+     * @param statistics statistics to record bytes read in
+     */
+    CountingProjectArchive(ProjectArchive archive, LoadStatistics statistics) {
+        this.archive = archive;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public List<String> getFolders() {
+        return archive.getFolders();
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return archive.exists(path);
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        return new FilterInputStream(archive.open(path)) {
+
+            private long count;
+
+            @Override
+            public int read() throws IOException {
+                Utils.checkInterrupted();
+                int b = super.read();
+                if (b != -1) {
+                    count++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Utils.checkInterrupted();
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count += n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                count += skipped;
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                statistics.addBytesRead(path, count);
+                count = 0;
+            }
+        };
+    }
+
+    @Override
+    public long getCrc(String path) {
+        return archive.getCrc(path);
+    }
+
+    @Override
+    public long getSize(String path) {
+        return archive.getSize(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+}
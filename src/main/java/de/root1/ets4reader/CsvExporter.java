@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Exports projects as UTF-8 encoded CSV (RFC 4180), one record per line.
+ * The first column tells the kind of record:
+ * <pre>
+ * record,project,address,name,dpt,connected,userconfigured
+ * project,P-05FA,,My Home,,,
+ * device,P-05FA,1.1.100,Switch actuator,,,
+ * groupaddress,P-05FA,1/1/100,Livingroom Light,1.001,true,false
+ * </pre> The DPT of group addresses without DPT is empty. Fields containing
+ * commas, quotes or line breaks are quoted.
+ *
+ * @author achristian
+ */
+public class CsvExporter extends ProjectExporter {
+
+    /**
+     *
+     * @param out stream to write to, closed by {@link #close()}
+     */
+    public CsvExporter(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     *
+     * @param channel channel to write to, closed by {@link #close()}
+     */
+    public CsvExporter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    void writeStart() throws IOException {
+        writeAscii("record,project,address,name,dpt,connected,userconfigured\r\n");
+    }
+
+    @Override
+    void writeProject(Project project) throws IOException {
+        writeAscii("project,");
+        writeField(project.getInternalId());
+        writeByte(',');
+        writeByte(',');
+        writeField(project.getName());
+        writeAscii(",,,\r\n");
+    }
+
+    @Override
+    void writeDevice(Project project, Device device) throws IOException {
+        writeAscii("device,");
+        writeField(project.getInternalId());
+        writeByte(',');
+        writeField(device.getAddress());
+        writeByte(',');
+        writeField(device.getName());
+        writeAscii(",,,\r\n");
+    }
+
+    @Override
+    void writeGroupAddress(Project project, GroupAddress groupAddress) throws IOException {
+        writeAscii("groupaddress,");
+        writeField(project.getInternalId());
+        writeByte(',');
+        writeField(groupAddress.getAddress());
+        writeByte(',');
+        writeField(groupAddress.getDefinedName());
+        writeByte(',');
+        if (groupAddress.getMainType() != GroupAddress.UNSPECIFIED) {
+            writeDataPointType(groupAddress);
+        }
+        writeAscii(groupAddress.isConnected() ? ",true" : ",false");
+        writeAscii(groupAddress.isUserConfigured() ? ",true\r\n" : ",false\r\n");
+    }
+
+    @Override
+    void writeEnd() throws IOException {
+    }
+
+    /**
+     * Writes a field, quoted if necessary
+     *
+     * @param value field value, null is written as empty field
+     * @throws IOException
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            writeUtf8(value);
+            return;
+        }
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writeByte('"');
+                writeByte('"');
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else {
+                i = writeNonAscii(value, i);
+            }
+        }
+        writeByte('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
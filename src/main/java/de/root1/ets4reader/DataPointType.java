@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A datapoint type (DPT) like 9.001, with main and sub type. Instances are
+ * canonical: there is only one instance per main and sub type, so they can be
+ * compared with ==. The textual form is computed once, so
+ * {@link #toString()} doesn't allocate.
+ * <p>
+ * Each distinct DPT ID is parsed only once, as ETS and user configuration
+ * repeat the same few IDs for thousands of group addresses.
+ *
+ * @author achristian
+ */
+public final class DataPointType {
+
+    /**
+     * canonical instances, key is main type &lt;&lt; 32 | sub type
+     */
+    private static final ConcurrentMap<Long, DataPointType> instances = new ConcurrentHashMap<>();
+
+    /**
+     * parsed DPT IDs, f.i. "DPST-9-1" or "9.001"
+     */
+    private static final ConcurrentMap<String, DataPointType> ids = new ConcurrentHashMap<>();
+
+    /**
+     * max. number of cached IDs, IDs come from files and might be arbitrary
+     */
+    private static final int MAX_IDS = 4096;
+
+    /**
+     * DPT of group addresses without DPT, main and sub type are
+     * {@link GroupAddress#UNSPECIFIED}
+     */
+    public static final DataPointType UNSPECIFIED = of(GroupAddress.UNSPECIFIED, GroupAddress.UNSPECIFIED);
+
+    private final int mainType;
+    private final int subType;
+    private final String text;
+
+    private DataPointType(int mainType, int subType) {
+        this.mainType = mainType;
+        this.subType = subType;
+        this.text = String.format("%d.%03d", mainType, subType);
+    }
+
+    /**
+     * Gets the DPT with the given main and sub type
+     *
+     * @param mainType f.i. 9
+     * @param subType f.i. 1
+     * @return canonical instance
+     */
+    public static DataPointType of(int mainType, int subType) {
+        Long key = (long) mainType << 32 | (subType & 0xFFFFFFFFL);
+        DataPointType dpt = instances.get(key);
+        if (dpt == null) {
+            DataPointType created = new DataPointType(mainType, subType);
+            dpt = instances.putIfAbsent(key, created);
+            if (dpt == null) {
+                dpt = created;
+            }
+        }
+        return dpt;
+    }
+
+    /**
+     * Parses a DPT ID as used by ETS or in user configuration. If several
+     * space separated IDs are given, as ETS does for some ComObjects, the
+     * first one is used.
+     *
+     * @param id "DPST-9-1" for 9.001, "DPT-5" for 5.000, or "9.001"
+     * @return canonical instance
+     * @throws IllegalArgumentException if the ID has none of these forms
+     */
+    public static DataPointType parse(String id) {
+        DataPointType dpt = ids.get(id);
+        if (dpt == null) {
+            dpt = parseId(id);
+            if (ids.size() < MAX_IDS) {
+                ids.putIfAbsent(id, dpt);
+            }
+        }
+        return dpt;
+    }
+
+    private static DataPointType parseId(String id) {
+        int end = id.indexOf(' ');
+        String first = end == -1 ? id : id.substring(0, end);
+        try {
+            if (first.startsWith("DPST-")) {
+                int separator = first.indexOf('-', 5);
+                if (separator != -1) {
+                    return of(Integer.parseInt(first.substring(5, separator)), Integer.parseInt(first.substring(separator + 1)));
+                }
+            } else if (first.startsWith("DPT-")) {
+                int separator = first.indexOf('-', 4);
+                return of(Integer.parseInt(first.substring(4, separator == -1 ? first.length() : separator)), 0);
+            } else {
+                int separator = first.indexOf('.');
+                if (separator != -1) {
+                    return of(Integer.parseInt(first.substring(0, separator)), Integer.parseInt(first.substring(separator + 1)));
+                }
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid DPT: '" + id + "'", ex);
+        }
+        throw new IllegalArgumentException("Invalid DPT: '" + id + "'");
+    }
+
+    /**
+     * Get DPT main type
+     *
+     * @return f.i. 9
+     */
+    public int getMainType() {
+        return mainType;
+    }
+
+    /**
+     * Get DPT sub type
+     *
+     * @return f.i. 1
+     */
+    public int getSubType() {
+        return subType;
+    }
+
+    /**
+     * Whether this is a real DPT, not {@link #UNSPECIFIED}
+     *
+     * @return true, if main type is specified
+     */
+    public boolean isSpecified() {
+        return mainType != GroupAddress.UNSPECIFIED;
+    }
+
+    /**
+     * DPT String, like "9.001"
+     *
+     * @return DPT
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
@@ -36,6 +36,14 @@ public class Device {
 
     private final String address;
     private String name;
+
+    /**
+     * area, line and member of the individual address, member is -1 if not
+     * assigned
+     */
+    private final int area;
+    private final int line;
+    private final int member;
     /**
      * ComObjInstanceRef-ID <-> GroupAddressRef-ID
      * <br>
@@ -54,23 +62,11 @@ public class Device {
      * @param area
      * @param line
      * @param deviceInstance <DeviceInstance> Element
+     * @param symbols symbol table to canonicalize IDs with
      */
-    Device(Project project, int area, int line, Element deviceInstance) {
+    Device(Project project, int area, int line, Element deviceInstance, SymbolTable symbols) {
 
-        String memberAddress = deviceInstance.getAttributeValue("Address");
-        if (memberAddress != null) {
-            int member = Integer.parseInt(memberAddress);
-            address = area + "." + line + "." + member;
-        } else {
-            address = area + "." + line + ".-";
-        }
-
-        name = deviceInstance.getAttributeValue("Name");
-        if (name == null) {
-            String productRefId = deviceInstance.getAttributeValue("ProductRefId");
-//                        deviceName = getDeviceOriginalName(productRefId);
-            name = productRefId;
-        }
+        this(area, line, deviceInstance.getAttributeValue("Address"), deviceInstance.getAttributeValue("Name"), deviceInstance.getAttributeValue("ProductRefId"));
 
         Element comobjInstanceRefsElement = deviceInstance.getChild("ComObjectInstanceRefs", project.getNamespace());
         if (comobjInstanceRefsElement != null) {
@@ -79,25 +75,15 @@ public class Device {
             // iterate over <ComObjectInstanceRefs> childs
             for (Element comObjectInstanceRefElement : children) {
 
-                String refId = comObjectInstanceRefElement.getAttributeValue("RefId");
-                String dpt = comObjectInstanceRefElement.getAttributeValue("DatapointType");
-                if (dpt!=null) {
-                    dptMap.put(refId, dpt);
-                    log.debug("User defined DPT for comobjrefid="+refId);
-                }
+                String refId = symbols.intern(comObjectInstanceRefElement.getAttributeValue("RefId"));
+                addComObjectInstanceRef(refId, symbols.intern(comObjectInstanceRefElement.getAttributeValue("DatapointType")));
                 
                 Element connectorsElement = comObjectInstanceRefElement.getChild("Connectors", project.getNamespace());
                 if (connectorsElement != null) {
                     List<Element> connectorsChildren = connectorsElement.getChildren();
                     if (!connectorsChildren.isEmpty()) {
                         for (Element child : connectorsChildren) {
-                            String groupAddressRefId = child.getAttributeValue("GroupAddressRefId");
-                            List<String> groupAddrRefIfList = refMap.get(refId);
-                            if (groupAddrRefIfList==null) {
-                                groupAddrRefIfList = new ArrayList<>();
-                                refMap.put(refId, groupAddrRefIfList);
-                            }
-                            groupAddrRefIfList.add(groupAddressRefId);
+                            addConnector(refId, symbols.intern(child.getAttributeValue("GroupAddressRefId")));
                         }
                     }
                 }
@@ -107,6 +93,81 @@ public class Device {
 
     }
 
+    /**
+     * Creates a device without any ComObjectInstanceRefs. Those have to be
+     * added with {@link #addComObjectInstanceRef(String, String)} and
+     * {@link #addConnector(String, String)}
+     *
+     * @param area
+     * @param line
+     * @param memberAddress value of the DeviceInstance's "Address" attribute,
+     * may be null
+     * @param name value of the DeviceInstance's "Name" attribute, may be null
+     * @param productRefId value of the DeviceInstance's "ProductRefId"
+     * attribute, used if name is null
+     */
+    Device(int area, int line, String memberAddress, String name, String productRefId) {
+
+        if (memberAddress != null) {
+            member = Integer.parseInt(memberAddress);
+            address = area + "." + line + "." + member;
+        } else {
+            member = -1;
+            address = area + "." + line + ".-";
+        }
+        this.area = area;
+        this.line = line;
+
+        this.name = name;
+        if (this.name == null) {
+//                        deviceName = getDeviceOriginalName(productRefId);
+            this.name = productRefId;
+        }
+    }
+
+    /**
+     * Restores a device without any ComObjectInstanceRefs
+     *
+     * @param address address with dot-notation, f.i. 1.1.100
+     * @param name device name
+     */
+    Device(String address, String name) {
+        this.address = address;
+        this.name = name;
+        String[] split = address.split("\\.");
+        area = Integer.parseInt(split[0]);
+        line = Integer.parseInt(split[1]);
+        member = split[2].equals("-") ? -1 : Integer.parseInt(split[2]);
+    }
+
+    /**
+     * Registers a <ComObjectInstanceRef>
+     *
+     * @param refId ComObjectInstanceRef-ID
+     * @param dpt user defined DPT, may be null
+     */
+    void addComObjectInstanceRef(String refId, String dpt) {
+        if (dpt != null) {
+            dptMap.put(refId, dpt);
+            log.debug("User defined DPT for comobjrefid=" + refId);
+        }
+    }
+
+    /**
+     * Registers a connector (send or receive) of a ComObjectInstanceRef
+     *
+     * @param refId ComObjectInstanceRef-ID
+     * @param groupAddressRefId GroupAddressRef-ID, f.i. P-05FA-0_GA-246
+     */
+    void addConnector(String refId, String groupAddressRefId) {
+        List<String> groupAddrRefIfList = refMap.get(refId);
+        if (groupAddrRefIfList == null) {
+            groupAddrRefIfList = new ArrayList<>();
+            refMap.put(refId, groupAddrRefIfList);
+        }
+        groupAddrRefIfList.add(groupAddressRefId);
+    }
+
     /**
      * ComObjInstanceRef-ID <-> GroupAddressRef-ID
      * <br>
@@ -142,6 +203,51 @@ public class Device {
         return address;
     }
 
+    /**
+     * Packed 16 bit individual address of this device, as used in telegrams:
+     * 4 bit area, 4 bit line, 8 bit member
+     *
+     * @return individual address, or -1 if the device has no member address
+     * assigned
+     */
+    public int getIndividualAddress() {
+        if (member == -1 || !isValidLine(area, line) || member > 0xFF) {
+            return -1;
+        }
+        return getLineAddress() << 8 | member;
+    }
+
+    /**
+     * Area of this device, f.i. 1 for 1.2.100
+     *
+     * @return area
+     */
+    public int getArea() {
+        return area;
+    }
+
+    /**
+     * Line of this device within its area, f.i. 2 for 1.2.100
+     *
+     * @return line
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Packed 8 bit address of the line, 4 bit area and 4 bit line
+     *
+     * @return line address, undefined if area or line are out of range
+     */
+    int getLineAddress() {
+        return area << 4 | line;
+    }
+
+    static boolean isValidLine(int area, int line) {
+        return area >= 0 && area <= 0x0F && line >= 0 && line <= 0x0F;
+    }
+
     /**
      * name of this device as defined in ETS
      * @return device name
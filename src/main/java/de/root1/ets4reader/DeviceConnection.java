@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection of a group address to a device's ComObjectInstanceRef
+ *
+ * @author achristian
+ */
+class DeviceConnection {
+
+    private final Device device;
+    private final String comObjectInstanceRef;
+
+    /**
+     *
+     * @param device device the group address is connected to
+     * @param comObjectInstanceRef ComObjInstanceRef-ID, f.i.
+     * M-0083_A-0030-20-FCCB_X-30_R-10212
+     */
+    DeviceConnection(Device device, String comObjectInstanceRef) {
+        this.device = device;
+        this.comObjectInstanceRef = comObjectInstanceRef;
+    }
+
+    /**
+     * Adds the connections of a device to a GroupAddressRef-ID index. Existing
+     * entries are kept, so the first device added (and within the device, the
+     * first ComObjectInstanceRef) wins.
+     *
+     * @param device
+     * @param index GroupAddressRef-ID <-> connection to first device
+     */
+    static void index(Device device, Map<String, DeviceConnection> index) {
+        for (Map.Entry<String, List<String>> entry : device.getRefMap().entrySet()) {
+            for (String groupAddressRefId : entry.getValue()) {
+                if (groupAddressRefId != null && !index.containsKey(groupAddressRefId)) {
+                    index.put(groupAddressRefId, new DeviceConnection(device, entry.getKey()));
+                }
+            }
+        }
+    }
+
+    Device getDevice() {
+        return device;
+    }
+
+    String getComObjectInstanceRef() {
+        return comObjectInstanceRef;
+    }
+
+}
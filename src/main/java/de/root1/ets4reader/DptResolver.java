@@ -0,0 +1,557 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamException;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the DPT of group addresses. The device connection of each group
+ * address is taken from the project's connection index, so that every group
+ * address is resolved with a single lookup. Manufacturer application files
+ * are parsed once and cached for all projects resolved by the same instance.
+ * If an executor is configured, all required application files are parsed in
+ * parallel before the group addresses are resolved.
+ *
+ * @author achristian
+ */
+class DptResolver {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final Pattern manufacturerPattern = Pattern.compile("M-[0-9A-F]{4}");
+
+    // M-0083_A-004D-12-E268
+    // M-00C8_A-2820-40-090B-O00C5
+    private final Pattern manufacturerDevicePattern = Pattern.compile("M-[0-9A-F]{4}_[0-9A-F]-[0-9A-F]{4}-[0-9A-F]{2}-[0-9A-F]{4}(-[0-9A-Z]{1}[0-9A-F]{4})?");
+
+    private final ProjectArchive archive;
+    private final ReaderOptions options;
+    private final PersistentDptCache persistentCache;
+    private final DptTableCache memoryCache;
+    private final SymbolTable symbols;
+    private final LoadStatistics statistics;
+
+    /**
+     * devicefile <-> commObjRefDptCache
+     */
+    private final Map<String, Map<String, String>> manufacturerCache = new ConcurrentHashMap<>();
+
+    /**
+     * ComObjectRef-IDs to keep in the manufacturer caches, null for all
+     */
+    private Set<String> refFilter;
+
+    /**
+     * progress of loading manufacturer files, total is only known if a
+     * progress listener is set
+     */
+    private final AtomicInteger manufacturerFilesDone = new AtomicInteger();
+    private int manufacturerFilesTotal = -1;
+
+    /**
+     *
+     * @param archive archive to read the manufacturer files from
+     * @param options reader options
+     * @param memoryCache in-memory cache for DPT tables, may be null
+     * @param symbols symbol table to canonicalize IDs and DPTs of parsed
+     * application files with
+     * @param statistics statistics to count parsed and cached application
+     * files in
+     * @throws IOException if the DPT cache directory cannot be created
+     */
+    DptResolver(ProjectArchive archive, ReaderOptions options, DptTableCache memoryCache, SymbolTable symbols, LoadStatistics statistics) throws IOException {
+        this.archive = archive;
+        this.options = options;
+        this.memoryCache = memoryCache;
+        this.symbols = symbols;
+        this.statistics = statistics;
+        this.persistentCache = options.getDptCacheDirectory() != null ? new PersistentDptCache(options.getDptCacheDirectory()) : null;
+    }
+
+    /**
+     * Sets DPT and connected-state of all group addresses of the given
+     * projects
+     *
+     * @param projects
+     * @throws JDOMException
+     * @throws IOException
+     */
+    void resolve(List<Project> projects) throws JDOMException, IOException {
+        Set<String> referencedRefs = null;
+        if (options.isReferencedComObjectRefsOnly()) {
+            referencedRefs = collectReferencedComObjectRefs(projects);
+            refFilter = referencedRefs;
+            log.debug("Caching {} referenced ComObjectRefs only", refFilter.size());
+        }
+        if (options.getProgressListener() != null) {
+            if (referencedRefs == null) {
+                referencedRefs = collectReferencedComObjectRefs(projects);
+            }
+            Set<String> deviceFileNames = new HashSet<>();
+            for (String comObjInstanceRef : referencedRefs) {
+                deviceFileNames.add(getDeviceFileName(comObjInstanceRef));
+            }
+            manufacturerFilesTotal = deviceFileNames.size();
+        }
+        if (options.getExecutor() != null) {
+            if (referencedRefs == null) {
+                referencedRefs = collectReferencedComObjectRefs(projects);
+            }
+            loadManufacturerCaches(referencedRefs, options.getExecutor());
+        }
+        for (Project project : projects) {
+            resolve(project);
+        }
+    }
+
+    /**
+     * Collects the IDs of all ComObjectRefs which are connected to a group
+     * address and need a DPT from the manufacturer application file
+     *
+     * @param projects
+     * @return set of ComObjectRef-IDs
+     */
+    private Set<String> collectReferencedComObjectRefs(List<Project> projects) {
+        Set<String> refs = new HashSet<>();
+        for (Project project : projects) {
+            for (GroupAddress groupAddress : project.getGroupaddressList()) {
+                DeviceConnection connection = project.getDeviceConnection(groupAddress.getInternalId());
+                if (connection != null && !connection.getDevice().getDptMap().containsKey(connection.getComObjectInstanceRef())) {
+                    refs.add(connection.getComObjectInstanceRef());
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Loads the caches of all manufacturer application files the given
+     * ComObjectRefs belong to. The files are parsed in parallel on the given
+     * executor. Returns when all files are done.
+     *
+     * @param comObjectRefs ComObjectRef-IDs
+     * @param executor executor to parse the files on
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private void loadManufacturerCaches(Set<String> comObjectRefs, Executor executor) throws JDOMException, IOException {
+        // devicefile <-> path of the file
+        Map<String, String> files = new HashMap<>();
+        for (String comObjInstanceRef : comObjectRefs) {
+            String deviceFileName = getDeviceFileName(comObjInstanceRef);
+            if (!files.containsKey(deviceFileName) && !manufacturerCache.containsKey(deviceFileName)) {
+                files.put(deviceFileName, getManufacturerId(comObjInstanceRef) + "/" + deviceFileName + ".xml");
+            }
+        }
+        log.debug("Loading {} manufacturer files in parallel", files.size());
+
+        List<FutureTask<Void>> tasks = new ArrayList<>();
+        for (final Map.Entry<String, String> entry : files.entrySet()) {
+            FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    manufacturerCache.put(entry.getKey(), loadCache(entry.getKey(), entry.getValue()));
+                    manufacturerFileDone(entry.getKey());
+                    return null;
+                }
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+
+        try {
+            for (FutureTask<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException ex) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading manufacturer files");
+        } catch (ExecutionException ex) {
+            cancel(tasks);
+            throw rethrow(ex, "Error loading manufacturer files");
+        }
+    }
+
+    private void cancel(List<FutureTask<Void>> tasks) {
+        for (FutureTask<Void> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Sets DPT and connected-state of all group addresses of the given project
+     *
+     * @param project
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private void resolve(Project project) throws JDOMException, IOException {
+        for (GroupAddress groupAddress : project.getGroupaddressList()) {
+            resolve(groupAddress, project.getDeviceConnection(groupAddress.getInternalId()));
+        }
+    }
+
+    /**
+     * Sets DPT and connected-state of a single group address
+     *
+     * @param groupAddress
+     * @param connection connection of the group address to the first device
+     * using it, null if not connected
+     * @throws JDOMException
+     * @throws IOException
+     */
+    void resolve(GroupAddress groupAddress, DeviceConnection connection) throws JDOMException, IOException {
+        if (connection != null) {
+            // It's a matching device
+            String comObjInstanceRef = connection.getComObjectInstanceRef();
+            String dpt = connection.getDevice().getDptMap().get(comObjInstanceRef);
+
+            if (dpt == null) {
+                dpt = getManufacturerCache(comObjInstanceRef).get(comObjInstanceRef);
+                log.debug("Found device defined DPT '{}' for GA {}", dpt, groupAddress.getAddress());
+            } else {
+                log.debug("Found ETS defined DPT '{}' for GA {}", dpt, groupAddress.getAddress());
+            }
+
+            if (dpt != null) {
+                setDataPointType(groupAddress, dpt);
+            } else {
+                log.warn(">>>>>> Groupaddress {} has no DPT! Please configure in ETS! <<<<<<", groupAddress.getAddress());
+            }
+
+        } else {
+            log.debug(">>>>>> Groupaddress {} is not connected to any device in ETS! <<<<<<", groupAddress.getAddress());
+        }
+        groupAddress.setConnected(connection != null);
+    }
+
+    /**
+     * Sets the DPT of a group address
+     *
+     * @param groupAddress
+     * @param dpt ETS DPT string, f.i. "DPST-1-1" or "DPT-5"
+     */
+    private void setDataPointType(GroupAddress groupAddress, String dpt) {
+        try {
+            groupAddress.setDataPointType(DataPointType.parse(dpt));
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring invalid DPT '{}' of GA {}", dpt, groupAddress.getAddress());
+        }
+    }
+
+    /**
+     * Gets the ComObjectRef -> DPT cache of the manufacturer application file
+     * the given ComObjectInstanceRef belongs to
+     *
+     * @param comObjInstanceRef f.i. M-0083_A-0030-20-FCCB_X-30_R-10212
+     * @return ComObjectRef -> DPT cache
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private Map<String, String> getManufacturerCache(String comObjInstanceRef) throws JDOMException, IOException {
+        String deviceFileName = getDeviceFileName(comObjInstanceRef);
+
+        Map<String, String> cache = manufacturerCache.get(deviceFileName);
+
+        if (cache == null) {
+            String mFile = getManufacturerId(comObjInstanceRef) + "/" + deviceFileName + ".xml";
+            cache = loadCache(deviceFileName, mFile);
+            manufacturerCache.put(deviceFileName, cache);
+            manufacturerFileDone(deviceFileName);
+
+        } else {
+            log.debug("Using cache for {}", deviceFileName);
+        }
+        return cache;
+    }
+
+    private void manufacturerFileDone(String deviceFileName) {
+        int done = manufacturerFilesDone.incrementAndGet();
+        LoadProgressListener listener = options.getProgressListener();
+        if (listener != null) {
+            listener.manufacturerFileDone(deviceFileName, done, manufacturerFilesTotal);
+        }
+    }
+
+    /**
+     * Extracts the manufacturer refId (which is folder name)
+     *
+     * @param comObjInstanceRef f.i. M-0083_A-0030-20-FCCB_X-30_R-10212
+     * @return manufacturer ID, f.i. M-0083
+     */
+    private String getManufacturerId(String comObjInstanceRef) {
+        Matcher matcher = manufacturerPattern.matcher(comObjInstanceRef);
+        if (matcher.find()) {
+            return comObjInstanceRef.substring(matcher.start(), matcher.end());
+        }
+        log.error("No manufacturer found for {}", comObjInstanceRef);
+        return "";
+    }
+
+    /**
+     * Extracts the name of the device xml file
+     *
+     * @param comObjInstanceRef f.i. M-0083_A-0030-20-FCCB_X-30_R-10212
+     * @return application ID, f.i. M-0083_A-0030-20-FCCB
+     */
+    private String getDeviceFileName(String comObjInstanceRef) {
+        Matcher deviceMatcher = manufacturerDevicePattern.matcher(comObjInstanceRef);
+        if (deviceMatcher.find()) {
+            return comObjInstanceRef.substring(deviceMatcher.start(), deviceMatcher.end());
+        }
+        log.error("No device found for {}", comObjInstanceRef);
+        return "";
+    }
+
+    /**
+     * Loads the ComObjectRef -> DPT cache of a manufacturer application file,
+     * either from the in-memory, shared or persistent DPT cache or by parsing
+     * the file
+     *
+     * @param deviceFileName application ID, f.i. M-0083_A-0030-20-FCCB
+     * @param mFile path of the application file in the archive
+     * @return ComObjectRef -> DPT cache
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private Map<String, String> loadCache(String deviceFileName, String mFile) throws JDOMException, IOException {
+        Utils.checkInterrupted();
+        long crc = archive.getCrc(mFile);
+
+        List<DptTableCache> caches = new ArrayList<>(3);
+        if (crc != -1) {
+            if (memoryCache != null) {
+                caches.add(memoryCache);
+            }
+            if (options.getSharedDptCache() != null) {
+                caches.add(options.getSharedDptCache());
+            }
+            if (persistentCache != null) {
+                caches.add(persistentCache);
+            }
+        }
+
+        if (caches.isEmpty()) {
+            log.debug("Create cache for " + deviceFileName);
+            Map<String, String> cache = createCache(mFile, refFilter);
+            log.debug("Create cache for {}", deviceFileName + " ... *DONE*");
+            statistics.manufacturerFileParsed();
+            return cache;
+        }
+
+        // cached tables are always complete
+        Map<String, String> cache = loadTable(caches, 0, deviceFileName, mFile, crc);
+
+        if (refFilter != null) {
+            Map<String, String> filtered = new HashMap<>();
+            for (Map.Entry<String, String> entry : cache.entrySet()) {
+                if (refFilter.contains(entry.getKey())) {
+                    filtered.put(entry.getKey(), entry.getValue());
+                }
+            }
+            cache = filtered;
+        }
+        return cache;
+    }
+
+    /**
+     * Gets the complete table of an application file from the first of the
+     * given caches which has it, or parses the file. The table is stored in
+     * the caches in front of the one which had it. A shared cache runs the
+     * lookup in the caches behind it and the parsing only once for concurrent
+     * readers.
+     *
+     * @param caches caches in lookup order
+     * @param from index of the first cache to ask
+     * @param deviceFileName application ID, f.i. M-0083_A-0030-20-FCCB
+     * @param mFile path of the application file in the archive
+     * @param crc CRC-32 of the application file
+     * @return ComObjectRef -> DPT
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private Map<String, String> loadTable(final List<DptTableCache> caches, final int from, final String deviceFileName, final String mFile, final long crc) throws JDOMException, IOException {
+        if (from == caches.size()) {
+            log.debug("Create cache for " + deviceFileName);
+            Map<String, String> cache = createCache(mFile, null);
+            log.debug("Create cache for {}", deviceFileName + " ... *DONE*");
+            statistics.manufacturerFileParsed();
+            return cache;
+        }
+
+        DptTableCache dptTableCache = caches.get(from);
+        Map<String, String> cache;
+        if (dptTableCache instanceof SharedDptCache) {
+            final boolean[] loaded = new boolean[1];
+            try {
+                cache = ((SharedDptCache) dptTableCache).get(deviceFileName, crc, new Callable<Map<String, String>>() {
+
+                    @Override
+                    public Map<String, String> call() throws Exception {
+                        loaded[0] = true;
+                        return loadTable(caches, from + 1, deviceFileName, mFile, crc);
+                    }
+                });
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + deviceFileName);
+            } catch (ExecutionException ex) {
+                throw rethrow(ex, "Error loading " + mFile);
+            }
+            if (!loaded[0]) {
+                log.debug("Using cached table for {}", deviceFileName);
+                statistics.manufacturerFileCached();
+            }
+            return cache;
+        }
+
+        cache = dptTableCache.get(deviceFileName, crc);
+        if (cache != null) {
+            log.debug("Using cached table for {}", deviceFileName);
+            statistics.manufacturerFileCached();
+            return cache;
+        }
+        cache = loadTable(caches, from + 1, deviceFileName, mFile, crc);
+        dptTableCache.put(deviceFileName, crc, cache);
+        return cache;
+    }
+
+    /**
+     * Throws the cause of a failed task
+     *
+     * @param ex
+     * @param message message of the IOException thrown for checked causes
+     * other than JDOMException and IOException
+     * @return never returns, for use in a throw statement
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private static IOException rethrow(ExecutionException ex, String message) throws JDOMException, IOException {
+        Throwable cause = ex.getCause();
+        if (cause instanceof JDOMException) {
+            throw (JDOMException) cause;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(message, cause);
+    }
+
+    private Map<String, String> createCache(String mFile, Set<String> refFilter) throws JDOMException, IOException {
+        if (!options.isStreamingParser()) {
+            return createCacheFromDocument(mFile, refFilter);
+        }
+        try (InputStream in = archive.open(mFile)) {
+            return new ComObjectDptStreamReader(symbols).read(in, mFile, refFilter);
+        } catch (XMLStreamException ex) {
+            throw new JDOMException("Error reading " + mFile, ex);
+        }
+    }
+
+    private Map<String, String> createCacheFromDocument(String mFile, Set<String> refFilter) throws JDOMException, IOException {
+
+        // ComObjectRef -> DPT
+        Map<String, String> cache = new HashMap<>();
+
+        SAXBuilder builder = new SAXBuilder();
+
+        Document document;
+        try (InputStream in = archive.open(mFile)) {
+            document = (Document) builder.build(in);
+        }
+        Element rootElement = document.getRootElement();
+        Namespace ns = rootElement.getNamespace();
+
+        // ComObject ID -> DPT
+        Map<String, String> comObjectDptCache = new HashMap<>();
+
+        Element applicationProgramsElement = rootElement.getChild("ManufacturerData", ns).getChild("Manufacturer", ns).getChild("ApplicationPrograms", ns);
+
+        // Cache all comobject's DPTs
+        Element comObjectTable = applicationProgramsElement.getChild("ApplicationProgram", ns).getChild("Static", ns).getChild("ComObjectTable", ns);
+        List<Element> comObjects = comObjectTable.getChildren("ComObject", ns);
+        for (Element comObject : comObjects) {
+            String id = comObject.getAttributeValue("Id");
+            String dpt = comObject.getAttributeValue("DatapointType");
+            if (dpt == null) {
+                log.debug("ManufacturerDevice File {} comobject id={} has no DPT?!", mFile, id);
+            }
+            comObjectDptCache.put(id, symbols.intern(dpt));
+        }
+
+        Element comObjectRefs = applicationProgramsElement.getChild("ApplicationProgram", ns).getChild("Static", ns).getChild("ComObjectRefs", ns);
+        List<Element> children = comObjectRefs.getChildren("ComObjectRef", ns);
+        for (Element comObjectRefElement : children) {
+            String refId = comObjectRefElement.getAttributeValue("Id");
+            if (refFilter != null && !refFilter.contains(refId)) {
+                continue;
+            }
+            String comObjectId = comObjectRefElement.getAttributeValue("RefId");
+
+            String dpt = comObjectRefElement.getAttributeValue("DatapointType");
+            if (dpt == null) {
+                // ask comobject cache
+                dpt = comObjectDptCache.get(comObjectId);
+            } else {
+                dpt = symbols.intern(dpt);
+            }
+
+            if (dpt == null) {
+                log.debug("ComObjRef '{}' has no DPT??? file: {}", refId, mFile);
+            }
+
+            cache.put(symbols.intern(refId), dpt);
+        }
+
+        return cache;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.Map;
+
+/**
+ * Cache for the ComObjectRef -> DPT tables of manufacturer application files.
+ * Tables are identified by the application ID and the CRC-32 of the
+ * application file, so a table is never used for a different version of the
+ * file. Tables in a cache are always complete, i.e. not restricted to the
+ * ComObjectRefs referenced by a project.
+ *
+ * @author achristian
+ */
+interface DptTableCache {
+
+    /**
+     * Gets a table
+     *
+     * @param applicationId f.i. M-0083_A-0030-20-FCCB
+     * @param crc CRC-32 of the application file
+     * @return ComObjectRef -> DPT, or null if not cached
+     */
+    Map<String, String> get(String applicationId, long crc);
+
+    /**
+     * Stores a table
+     *
+     * @param applicationId f.i. M-0083_A-0030-20-FCCB
+     * @param crc CRC-32 of the application file
+     * @param table ComObjectRef -> DPT
+     */
+    void put(String applicationId, long crc, Map<String, String> table);
+
+}
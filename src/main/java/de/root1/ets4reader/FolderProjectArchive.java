@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the entries of a .knxproj file which has been extracted to a folder.
+ *
+ * @author achristian
+ */
+class FolderProjectArchive implements ProjectArchive {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File folder;
+    private final boolean deleteOnClose;
+
+    /**
+     * entry path <-> CRC-32 as stored in the zip file
+     */
+    private final Map<String, Long> crcs;
+
+    /**
+     *
+     * @param folder folder with the extracted .knxproj content
+     * @param deleteOnClose if true, folder is deleted when archive is closed
+     */
+    FolderProjectArchive(File folder, boolean deleteOnClose) {
+        this(folder, deleteOnClose, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     *
+     * @param folder folder with the extracted .knxproj content
+     * @param deleteOnClose if true, folder is deleted when archive is closed
+     * @param crcs entry path <-> CRC-32 of the extracted entries
+     */
+    FolderProjectArchive(File folder, boolean deleteOnClose, Map<String, Long> crcs) {
+        this.folder = folder;
+        this.deleteOnClose = deleteOnClose;
+        this.crcs = crcs;
+    }
+
+    @Override
+    public List<String> getFolders() {
+        List<String> folders = new ArrayList<>();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    folders.add(file.getName());
+                }
+            }
+        }
+        return folders;
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return new File(folder, path).exists();
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        return new BufferedInputStream(new FileInputStream(new File(folder, path)));
+    }
+
+    @Override
+    public long getCrc(String path) {
+        Long crc = crcs.get(path);
+        return crc == null ? -1 : crc;
+    }
+
+    @Override
+    public long getSize(String path) {
+        File file = new File(folder, path);
+        return file.exists() ? file.length() : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!deleteOnClose) {
+            return;
+        }
+        log.debug("Deleting temp files {}", folder.getAbsolutePath());
+        Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                log.trace("delete file: {}", file);
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                log.trace("delete dir: {}", dir);
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+        log.debug("Deleting temp files *DONE*");
+    }
+
+}
@@ -21,6 +21,10 @@ package de.root1.ets4reader;
 import org.jdom2.Element;
 
 /**
+ * A group address with its state stored in plain fields. Group addresses of
+ * a compact table ({@link GroupAddressView}) or restored from a snapshot file
+ * ({@link SnapshotGroupAddress}) are subclasses which keep their state
+ * elsewhere, so plain objects don't carry fields for that.
  *
  * @author achristian
  */
@@ -30,18 +34,23 @@ public class GroupAddress {
     public static final int UNSPECIFIED = -1;
 
     private String name;
-    private final String internalId;
-    private int mainType=UNSPECIFIED;
-    private int subType=UNSPECIFIED;
+    private String internalId;
+    private DataPointType dataPointType = DataPointType.UNSPECIFIED;
     private boolean connected;
     private boolean userConfigured;
-    
 
-    GroupAddress(Element gaElement) {
-        name = gaElement.getAttributeValue("Name");
-        
-        int intAddress = Integer.parseInt(gaElement.getAttributeValue("Address"));
-        
+    GroupAddress(Element gaElement, SymbolTable symbols) {
+        this(symbols.intern(gaElement.getAttributeValue("Id")), Integer.parseInt(gaElement.getAttributeValue("Address")), gaElement.getAttributeValue("Name"));
+    }
+
+    /**
+     * 
+     * @param internalId ETS ID of the group address, f.i. P-05FA-0_GA-246
+     * @param intAddress raw 16 bit group address
+     * @param name name of the group address, may be null
+     */
+    GroupAddress(String internalId, int intAddress, String name) {
+        this.name = name;
         
         int main = intAddress >>> 11 & 0x1F;
         int middle = intAddress >>> 8 & 0x07;
@@ -49,26 +58,83 @@ public class GroupAddress {
         
         address = main+"/"+middle+"/"+sub;
         
-        internalId = gaElement.getAttributeValue("Id");
+        this.internalId = internalId;
         
     }
 
-    GroupAddress(String address, String dpt, String name) {
-        String[] split = dpt.split("\\.");
-        mainType = Integer.parseInt(split[0]);
-        subType = Integer.parseInt(split[1]);
+    /**
+     * Creates a group address which is only defined in user configuration
+     *
+     * @param address textual group address
+     * @param dpt DPT, f.i. 9.001
+     * @param name name of the group address, may be null
+     */
+    GroupAddress(String address, DataPointType dpt, String name) {
+        dataPointType = dpt;
         this.address = address;
         this.name = name;
         internalId = "USERCONFIG";
     }
 
+    /**
+     * Creates a group address without name, internal ID and DPT, for copies
+     * and for subclasses which keep some of the state themselves
+     *
+     * @param address textual group address, may be null
+     */
+    GroupAddress(String address) {
+        this.address = address;
+    }
+
+    /**
+     * Creates a copy of this group address with name, address and internal
+     * ID only. DPT, connected- and userconfig-state are not copied.
+     *
+     * @return unresolved copy
+     */
+    GroupAddress copy() {
+        GroupAddress copy = new GroupAddress(getAddress());
+        copy.name = getDefinedName();
+        copy.internalId = getInternalId();
+        return copy;
+    }
+
+    /**
+     * Creates a copy of this group address with all state, not backed by a
+     * compact table or snapshot string table
+     *
+     * @return complete copy
+     */
+    GroupAddress frozenCopy() {
+        GroupAddress copy = new GroupAddress(getAddress());
+        copy.dataPointType = getDpt();
+        copy.connected = isConnected();
+        copy.userConfigured = isUserConfigured();
+        copy.name = getDefinedName();
+        copy.internalId = getInternalId();
+        return copy;
+    }
+
     String getInternalId() {
         return internalId;
     }
 
+    void setInternalId(String internalId) {
+        this.internalId = internalId;
+    }
+
+    /**
+     * Name as defined in ETS or user configuration
+     *
+     * @return name or null, if not defined
+     */
+    String getDefinedName() {
+        return name;
+    }
+
     @Override
     public String toString() {
-        return "GroupAddress{" + "address=" + address + ", name=" + name + ", userconfig="+userConfigured+", connected="+isConnected()+", mainType=" + mainType + ", subType=" + subType + '}';
+        return "GroupAddress{" + "address=" + getAddress() + ", name=" + getDefinedName() + ", userconfig="+isUserConfigured()+", connected="+isConnected()+", mainType=" + getMainType() + ", subType=" + getSubType() + '}';
     }
 
     /**
@@ -84,7 +150,8 @@ public class GroupAddress {
      * @return ga name
      */
     public String getName() {
-        return name!=null?name:getAddress();
+        String definedName = getDefinedName();
+        return definedName!=null?definedName:getAddress();
     }
 
     /**
@@ -92,7 +159,7 @@ public class GroupAddress {
      * @return f.i. 5
      */
     public int getMainType() {
-        return mainType;
+        return getDpt().getMainType();
     }
 
     /**
@@ -100,12 +167,23 @@ public class GroupAddress {
      * @return f.i. 0
      */
     public int getSubType() {
-        return subType;
+        return getDpt().getSubType();
     }
-    
+
+    /**
+     * Get the DPT, shared by all group addresses with this DPT
+     * @return DPT, {@link DataPointType#UNSPECIFIED} if not defined
+     */
+    public DataPointType getDpt() {
+        return dataPointType;
+    }
+
     void setDataPointType(int mainType, int subType) {
-        this.mainType = mainType;
-        this.subType = subType;
+        setDataPointType(DataPointType.of(mainType, subType));
+    }
+
+    void setDataPointType(DataPointType dpt) {
+        this.dataPointType = dpt;
     }
 
     /**
@@ -113,7 +191,7 @@ public class GroupAddress {
      * @return DPT
      */
     public String getDataPointType() {
-        return String.format("%d.%03d",mainType, subType);
+        return getDpt().toString();
     }
 
     void setConnected(boolean connectedToDevice) {
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted index over the group addresses of a project. Group addresses are
+ * kept in arrays sorted by raw address and by DPT, so that queries for a
+ * range of addresses or a DPT are answered with a binary search and return a
+ * view on the matching part of the array. The index does not follow changes
+ * of the indexed group addresses and has to be rebuilt.
+ *
+ * @author achristian
+ */
+class GroupAddressIndex {
+
+    /**
+     * all group addresses, sorted by raw address. Group addresses which are
+     * not in the form main/middle/sub follow in list order.
+     */
+    private final List<GroupAddress> byAddress;
+
+    /**
+     * raw addresses of the first {@link #rawCount} entries of byAddress
+     */
+    private final int[] rawAddresses;
+    private final int rawCount;
+
+    /**
+     * all group addresses, sorted by DPT and raw address
+     */
+    private final List<GroupAddress> byDpt;
+
+    /**
+     * DPT keys of byDpt, see {@link #dptKey(int, int)}
+     */
+    private final long[] dptKeys;
+
+    /**
+     * unconnected group addresses, sorted by raw address
+     */
+    private final List<GroupAddress> unconnected;
+
+    /**
+     *
+     * @param groupAddresses group addresses to index
+     */
+    GroupAddressIndex(List<GroupAddress> groupAddresses) {
+        int size = groupAddresses.size();
+
+        // raw address in upper, list position in lower 32 bits. Sorting these
+        // keeps the list order of equal addresses.
+        long[] keys = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int raw = GroupAddressTable.toRawAddress(groupAddresses.get(i).getAddress());
+            if (raw != -1) {
+                count++;
+            } else {
+                raw = 0x10000;
+            }
+            keys[i] = (long) raw << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        GroupAddress[] sorted = new GroupAddress[size];
+        rawCount = count;
+        rawAddresses = new int[count];
+        int unconnectedCount = 0;
+        for (int i = 0; i < size; i++) {
+            sorted[i] = groupAddresses.get((int) keys[i]);
+            if (i < count) {
+                rawAddresses[i] = (int) (keys[i] >>> 32);
+            }
+            if (!sorted[i].isConnected()) {
+                unconnectedCount++;
+            }
+        }
+
+        // 33 bit DPT key in upper, position in sorted array in lower 31 bits.
+        // The sign bit is flipped so that the signed sort orders the keys as
+        // unsigned, otherwise keys from 0x80000000 would sort first.
+        GroupAddress[] unconnectedSorted = new GroupAddress[unconnectedCount];
+        unconnectedCount = 0;
+        for (int i = 0; i < size; i++) {
+            keys[i] = (dptKey(sorted[i].getMainType(), sorted[i].getSubType()) << 31 | i) ^ Long.MIN_VALUE;
+            if (!sorted[i].isConnected()) {
+                unconnectedSorted[unconnectedCount++] = sorted[i];
+            }
+        }
+        Arrays.sort(keys);
+
+        GroupAddress[] dptSorted = new GroupAddress[size];
+        dptKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] ^= Long.MIN_VALUE;
+            dptSorted[i] = sorted[(int) (keys[i] & 0x7FFFFFFF)];
+            dptKeys[i] = keys[i] >>> 31;
+        }
+
+        byAddress = Collections.unmodifiableList(Arrays.asList(sorted));
+        byDpt = Collections.unmodifiableList(Arrays.asList(dptSorted));
+        unconnected = Collections.unmodifiableList(Arrays.asList(unconnectedSorted));
+    }
+
+    /**
+     * Sort key of a DPT. Types with a negative main type, like
+     * {@link DataPointType#UNSPECIFIED}, get a key above the range of all
+     * others and are sorted last.
+     *
+     * @param mainType
+     * @param subType
+     * @return key within 0..0xFFFFFFFF, or 0x100000000 for a negative main
+     * type
+     */
+    private static long dptKey(int mainType, int subType) {
+        if (mainType < 0) {
+            return 0x100000000L;
+        }
+        return (long) (mainType & 0xFFFF) << 16 | (subType & 0xFFFF);
+    }
+
+    /**
+     * All group addresses, sorted by address
+     *
+     * @return unmodifiable list
+     */
+    List<GroupAddress> getSorted() {
+        return byAddress;
+    }
+
+    /**
+     * Group addresses within a range of raw addresses, sorted by address
+     *
+     * @param rangeStart first raw address
+     * @param rangeEnd last raw address, at most 0xFFFF
+     * @return unmodifiable list
+     */
+    List<GroupAddress> getRange(int rangeStart, int rangeEnd) {
+        if (rangeStart > rangeEnd) {
+            return Collections.emptyList();
+        }
+        return byAddress.subList(lowerBound(rangeStart), lowerBound(rangeEnd + 1));
+    }
+
+    /**
+     * Group addresses with a DPT within the given range, sorted by DPT and
+     * address
+     *
+     * @param mainType
+     * @param fromSubType first sub type
+     * @param toSubType last sub type
+     * @return unmodifiable list
+     */
+    List<GroupAddress> getByDataPointType(int mainType, int fromSubType, int toSubType) {
+        int from = lowerBound(dptKeys, dptKey(mainType, fromSubType));
+        int to = lowerBound(dptKeys, dptKey(mainType, toSubType) + 1);
+        return byDpt.subList(from, to);
+    }
+
+    /**
+     * Group addresses not connected to any device, sorted by address
+     *
+     * @return unmodifiable list
+     */
+    List<GroupAddress> getUnconnected() {
+        return unconnected;
+    }
+
+    /**
+     * Index of the first raw address which is not less than the given one
+     */
+    private int lowerBound(int raw) {
+        int low = 0;
+        int high = rawCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rawAddresses[mid] < raw) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] keys, long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compact, column oriented storage of group addresses. Each group address
+ * is stored as a row of primitive values, names and internal IDs are stored
+ * UTF-8 encoded in a shared byte pool. {@link #get(int)} returns a
+ * {@link GroupAddressView} on a row, so changes on it are written to the
+ * table.
+ * <p>
+ * Rows can only be appended, other modifications of the list are not
+ * supported.
+ *
+ * @author achristian
+ */
+class GroupAddressTable extends AbstractList<GroupAddress> implements RandomAccess {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String USERCONFIG = "USERCONFIG";
+
+    private static final byte CONNECTED = 1;
+    private static final byte USER_CONFIGURED = 2;
+    private static final byte USERCONFIG_ID = 4;
+    private static final byte OTHER_ADDRESS = 8;
+
+    /**
+     * raw address <-> textual address, shared by all tables and filled on
+     * first use, so getting an address doesn't allocate
+     */
+    private static final AtomicReferenceArray<String> addressTexts = new AtomicReferenceArray<>(0x10000);
+
+    private int size;
+
+    /**
+     * raw address, or index in {@link #otherAddresses} for rows with the
+     * OTHER_ADDRESS flag
+     */
+    private char[] rawAddresses = new char[16];
+    /**
+     * shared DPT instances, 4 bytes per row with compressed references
+     */
+    private DataPointType[] dataPointTypes = new DataPointType[16];
+    private byte[] flags = new byte[16];
+    private int[] nameRefs = new int[16];
+    private int[] internalIdRefs = new int[16];
+
+    /**
+     * distinct addresses which are not in the form main/middle/sub, f.i. from
+     * user configuration
+     */
+    private final List<String> otherAddresses = new ArrayList<>();
+
+    /**
+     * address <-> first row with this address, for {@link #otherAddresses}
+     */
+    private final Map<String, Integer> otherAddressRows = new HashMap<>();
+
+    /**
+     * length prefixed UTF-8 strings
+     */
+    private byte[] pool = new byte[256];
+    private int poolSize;
+
+    /**
+     * open addressing hash of raw address <-> row+1 of first row with this
+     * address
+     */
+    private int[] addressSlots = new int[32];
+    private int addressCount;
+
+    @Override
+    public GroupAddress get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+        }
+        return new GroupAddressView(this, row);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a group address by copying its state
+     *
+     * @param groupAddress
+     * @return true
+     */
+    @Override
+    public boolean add(GroupAddress groupAddress) {
+        if (size == flags.length) {
+            grow();
+        }
+        int row = size;
+
+        String address = groupAddress.getAddress();
+        int raw = toRawAddress(address);
+        byte rowFlags = 0;
+        if (raw == -1) {
+            Integer firstRow = otherAddressRows.get(address);
+            if (firstRow != null) {
+                rawAddresses[row] = rawAddresses[firstRow];
+            } else {
+                if (otherAddresses.size() > Character.MAX_VALUE) {
+                    throw new IllegalStateException("Too many group addresses not in the form main/middle/sub");
+                }
+                rawAddresses[row] = (char) otherAddresses.size();
+                otherAddresses.add(address);
+                otherAddressRows.put(address, row);
+            }
+            rowFlags |= OTHER_ADDRESS;
+        } else {
+            rawAddresses[row] = (char) raw;
+        }
+
+        dataPointTypes[row] = groupAddress.getDpt();
+
+        String internalId = groupAddress.getInternalId();
+        if (USERCONFIG.equals(internalId)) {
+            rowFlags |= USERCONFIG_ID;
+            internalIdRefs[row] = -1;
+        } else {
+            internalIdRefs[row] = addString(internalId);
+        }
+        if (groupAddress.isConnected()) {
+            rowFlags |= CONNECTED;
+        }
+        if (groupAddress.isUserConfigured()) {
+            rowFlags |= USER_CONFIGURED;
+        }
+        flags[row] = rowFlags;
+        nameRefs[row] = addString(groupAddress.getDefinedName());
+
+        size++;
+        modCount++;
+        if (raw != -1) {
+            indexAddress(row, raw);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first row with the given address
+     *
+     * @param address textual group address, f.i. 1/1/100
+     * @return row or -1 if not found
+     */
+    int find(String address) {
+        int raw = toRawAddress(address);
+        if (raw == -1) {
+            Integer row = otherAddressRows.get(address);
+            return row != null ? row : -1;
+        }
+        int mask = addressSlots.length - 1;
+        for (int i = hash(raw) & mask; addressSlots[i] != 0; i = (i + 1) & mask) {
+            int row = addressSlots[i] - 1;
+            if (rawAddresses[row] == raw) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Shrinks all columns and the string pool to their current size
+     */
+    void trimToSize() {
+        rawAddresses = Arrays.copyOf(rawAddresses, size);
+        dataPointTypes = Arrays.copyOf(dataPointTypes, size);
+        flags = Arrays.copyOf(flags, size);
+        nameRefs = Arrays.copyOf(nameRefs, size);
+        internalIdRefs = Arrays.copyOf(internalIdRefs, size);
+        pool = Arrays.copyOf(pool, poolSize);
+    }
+
+    String getAddress(int row) {
+        if ((flags[row] & OTHER_ADDRESS) != 0) {
+            return otherAddresses.get(rawAddresses[row]);
+        }
+        int raw = rawAddresses[row];
+        String address = addressTexts.get(raw);
+        if (address == null) {
+            address = (raw >>> 11 & 0x1F) + "/" + (raw >>> 8 & 0x07) + "/" + (raw & 0xFF);
+            addressTexts.set(raw, address);
+        }
+        return address;
+    }
+
+    String getName(int row) {
+        return getString(nameRefs[row]);
+    }
+
+    void setName(int row, String name) {
+        // old name stays in pool, renaming is rare
+        nameRefs[row] = addString(name);
+    }
+
+    String getInternalId(int row) {
+        return (flags[row] & USERCONFIG_ID) != 0 ? USERCONFIG : getString(internalIdRefs[row]);
+    }
+
+    DataPointType getDataPointType(int row) {
+        return dataPointTypes[row];
+    }
+
+    void setDataPointType(int row, DataPointType dataPointType) {
+        dataPointTypes[row] = dataPointType;
+    }
+
+    boolean isConnected(int row) {
+        return (flags[row] & CONNECTED) != 0;
+    }
+
+    void setConnected(int row, boolean connected) {
+        setFlag(row, CONNECTED, connected);
+    }
+
+    boolean isUserConfigured(int row) {
+        return (flags[row] & USER_CONFIGURED) != 0;
+    }
+
+    void setUserConfigured(int row, boolean userConfigured) {
+        setFlag(row, USER_CONFIGURED, userConfigured);
+    }
+
+    private void setFlag(int row, byte flag, boolean value) {
+        if (value) {
+            flags[row] |= flag;
+        } else {
+            flags[row] &= ~flag;
+        }
+    }
+
+    /**
+     * Converts a textual address to a raw 16 bit address
+     *
+     * @param address textual address, f.i. 1/1/100
+     * @return raw address, or -1 if the address is not in the form
+     * main/middle/sub or would not be converted back to the same text
+     */
+    static int toRawAddress(String address) {
+        // parsed by hand, as this is called for each lookup and export
+        int raw = 0;
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == '/') {
+                if (digits == 0 || ++part == 3 || value > (part == 1 ? 0x1F : 0x07)) {
+                    return -1;
+                }
+                raw = raw << 3 | value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                // no leading zeros, those would not be converted back to the same text
+                if (digits > 0 && value == 0 || ++digits > 3) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            } else {
+                return -1;
+            }
+        }
+        if (part != 2 || digits == 0 || value > 0xFF) {
+            return -1;
+        }
+        return raw << 8 | value;
+    }
+
+    private static int hash(int raw) {
+        int h = raw * 0x9E3779B1;
+        return h ^ h >>> 16;
+    }
+
+    private void indexAddress(int row, int raw) {
+        if ((addressCount + 1) * 2 > addressSlots.length) {
+            rehash();
+        }
+        int mask = addressSlots.length - 1;
+        int i = hash(raw) & mask;
+        while (addressSlots[i] != 0) {
+            if (rawAddresses[addressSlots[i] - 1] == raw) {
+                // first row with this address wins
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        addressSlots[i] = row + 1;
+        addressCount++;
+    }
+
+    private void rehash() {
+        int[] oldSlots = addressSlots;
+        addressSlots = new int[oldSlots.length * 2];
+        int mask = addressSlots.length - 1;
+        for (int slot : oldSlots) {
+            if (slot != 0) {
+                int i = hash(rawAddresses[slot - 1]) & mask;
+                while (addressSlots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                addressSlots[i] = slot;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, flags.length + (flags.length >> 1));
+        rawAddresses = Arrays.copyOf(rawAddresses, capacity);
+        dataPointTypes = Arrays.copyOf(dataPointTypes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        nameRefs = Arrays.copyOf(nameRefs, capacity);
+        internalIdRefs = Arrays.copyOf(internalIdRefs, capacity);
+    }
+
+    /**
+     * Adds a string to the pool
+     *
+     * @param value string, may be null
+     * @return offset in pool, -1 for null
+     */
+    private int addString(String value) {
+        if (value == null) {
+            return -1;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        int required = poolSize + 4 + bytes.length;
+        if (required > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(required, pool.length + (pool.length >> 1)));
+        }
+        int offset = poolSize;
+        pool[offset] = (byte) (bytes.length >>> 24);
+        pool[offset + 1] = (byte) (bytes.length >>> 16);
+        pool[offset + 2] = (byte) (bytes.length >>> 8);
+        pool[offset + 3] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, pool, offset + 4, bytes.length);
+        poolSize = required;
+        return offset;
+    }
+
+    private String getString(int offset) {
+        if (offset == -1) {
+            return null;
+        }
+        int length = (pool[offset] & 0xFF) << 24 | (pool[offset + 1] & 0xFF) << 16
+                | (pool[offset + 2] & 0xFF) << 8 | (pool[offset + 3] & 0xFF);
+        return new String(pool, offset + 4, length, UTF8);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+/**
+ * View on a row of a {@link GroupAddressTable}. All state is read from and
+ * written to the table. Views on the same row are equal.
+ *
+ * @author achristian
+ */
+class GroupAddressView extends GroupAddress {
+
+    private final GroupAddressTable table;
+    private final int row;
+
+    /**
+     *
+     * @param table table holding the state
+     * @param row row of the group address
+     */
+    GroupAddressView(GroupAddressTable table, int row) {
+        super(null);
+        this.table = table;
+        this.row = row;
+    }
+
+    @Override
+    String getInternalId() {
+        return table.getInternalId(row);
+    }
+
+    @Override
+    String getDefinedName() {
+        return table.getName(row);
+    }
+
+    @Override
+    public String getAddress() {
+        return table.getAddress(row);
+    }
+
+    @Override
+    public DataPointType getDpt() {
+        return table.getDataPointType(row);
+    }
+
+    @Override
+    void setDataPointType(DataPointType dpt) {
+        table.setDataPointType(row, dpt);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return table.isConnected(row);
+    }
+
+    @Override
+    void setConnected(boolean connectedToDevice) {
+        table.setConnected(row, connectedToDevice);
+    }
+
+    @Override
+    void setName(String name) {
+        table.setName(row, name);
+    }
+
+    @Override
+    public boolean isUserConfigured() {
+        return table.isUserConfigured(row);
+    }
+
+    @Override
+    void setUserConfigured(boolean userConfigured) {
+        table.setUserConfigured(row, userConfigured);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof GroupAddressView)) {
+            return false;
+        }
+        GroupAddressView other = (GroupAddressView) obj;
+        return table == other.table && row == other.row;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(table) * 31 + row;
+    }
+
+}
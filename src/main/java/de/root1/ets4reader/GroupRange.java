@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A group range as defined in ETS, f.i. a main or middle group. Ranges are
+ * nested like in ETS: main groups contain middle groups.
+ *
+ * @author achristian
+ */
+public class GroupRange {
+
+    private final String name;
+    private final int rangeStart;
+    private final int rangeEnd;
+    private final List<GroupRange> groupRanges = new ArrayList<>();
+
+    /**
+     *
+     * @param name name as defined in ETS, may be null
+     * @param rangeStart first raw 16 bit group address of the range
+     * @param rangeEnd last raw 16 bit group address of the range
+     */
+    GroupRange(String name, int rangeStart, int rangeEnd) {
+        this.name = name;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+    }
+
+    void addGroupRange(GroupRange groupRange) {
+        groupRanges.add(groupRange);
+    }
+
+    /**
+     * Name of the group range as defined in ETS
+     *
+     * @return name, or null if not defined
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * First group address of this range
+     *
+     * @return raw 16 bit group address
+     */
+    public int getRangeStart() {
+        return rangeStart;
+    }
+
+    /**
+     * Last group address of this range
+     *
+     * @return raw 16 bit group address
+     */
+    public int getRangeEnd() {
+        return rangeEnd;
+    }
+
+    /**
+     * Nested group ranges, f.i. the middle groups of a main group
+     *
+     * @return unmodifiable list of group ranges, in document order
+     */
+    public List<GroupRange> getGroupRanges() {
+        return Collections.unmodifiableList(groupRanges);
+    }
+
+    /**
+     * Whether a group address belongs to this range
+     *
+     * @param rawAddress raw 16 bit group address
+     * @return true, if address is within start and end of this range
+     */
+    public boolean contains(int rawAddress) {
+        return rawAddress >= rangeStart && rawAddress <= rangeEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupRange{" + "name=" + name + ", rangeStart=" + rangeStart + ", rangeEnd=" + rangeEnd + ", groupRanges=" + groupRanges.size() + '}';
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data kept by a {@link KnxProjReader} for an incremental re-read of a
+ * changed .knxproj file: the CRC and size of the read entries, the projects
+ * as they were before DPTs and user configuration have been applied, and the
+ * DPT tables of the manufacturer application files.
+ *
+ * @author achristian
+ */
+class IncrementalState implements DptTableCache {
+
+    /**
+     * entry path <-> "crc/size"
+     */
+    private final Map<String, String> stamps = new HashMap<>();
+
+    /**
+     * project folder <-> unresolved project
+     */
+    private final Map<String, Project> templates = new HashMap<>();
+
+    /**
+     * "applicationId/crc" <-> ComObjectRef -> DPT
+     */
+    private final Map<String, Map<String, String>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * state of the previous read, or null
+     */
+    private IncrementalState previous;
+
+    /**
+     *
+     * @param previous state of the previous read, or null. DPT tables which
+     * are still required are taken over from the previous state.
+     */
+    IncrementalState(IncrementalState previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Drops the reference to the previous state, so that the no longer
+     * required data can be garbage collected
+     */
+    void releasePrevious() {
+        previous = null;
+    }
+
+    /**
+     * Remembers CRC and size of an entry
+     *
+     * @param archive
+     * @param path entry path
+     */
+    void addStamp(ProjectArchive archive, String path) {
+        stamps.put(path, stamp(archive, path));
+    }
+
+    /**
+     * Checks whether an entry has the same CRC and size as the remembered one
+     *
+     * @param archive archive with the entry to check
+     * @param path entry path
+     * @return true, if entry is unchanged
+     */
+    boolean isUnchanged(ProjectArchive archive, String path) {
+        String stamp = stamp(archive, path);
+        return !stamp.startsWith("-1/") && stamp.equals(stamps.get(path));
+    }
+
+    private static String stamp(ProjectArchive archive, String path) {
+        return archive.getCrc(path) + "/" + archive.getSize(path);
+    }
+
+    void putTemplate(String projFolder, Project template) {
+        templates.put(projFolder, template);
+    }
+
+    Project getTemplate(String projFolder) {
+        return templates.get(projFolder);
+    }
+
+    @Override
+    public Map<String, String> get(String applicationId, long crc) {
+        Map<String, String> table = tables.get(applicationId + "/" + crc);
+        IncrementalState previousState = previous;
+        if (table == null && previousState != null) {
+            table = previousState.get(applicationId, crc);
+            if (table != null) {
+                put(applicationId, crc, table);
+            }
+        }
+        return table;
+    }
+
+    @Override
+    public void put(String applicationId, long crc, Map<String, String> table) {
+        tables.put(applicationId + "/" + crc, table);
+    }
+
+}
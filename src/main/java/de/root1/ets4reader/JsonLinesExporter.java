@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Exports projects as JSON lines: one UTF-8 encoded JSON object per line,
+ * with a "type" member telling the kind of record:
+ * <pre>
+ * {"type":"project","id":"P-05FA","name":"My Home","lastModified":1425204672123,"projectStart":1420070400000}
+ * {"type":"device","project":"P-05FA","address":"1.1.100","individualAddress":4452,"name":"Switch actuator"}
+ * {"type":"groupaddress","project":"P-05FA","address":"1/1/100","name":"Livingroom Light","dpt":"1.001","mainType":1,"subType":1,"connected":true,"userConfigured":false}
+ * </pre> Dates are milliseconds since 1970-01-01 UTC. The DPT of group
+ * addresses without DPT is null, main and sub type are -1. The individual
+ * address of devices without member address is -1.
+ *
+ * @author achristian
+ */
+public class JsonLinesExporter extends ProjectExporter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     *
+     * @param out stream to write to, closed by {@link #close()}
+     */
+    public JsonLinesExporter(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     *
+     * @param channel channel to write to, closed by {@link #close()}
+     */
+    public JsonLinesExporter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    void writeStart() throws IOException {
+    }
+
+    @Override
+    void writeProject(Project project) throws IOException {
+        writeAscii("{\"type\":\"project\",\"id\":");
+        writeString(project.getInternalId());
+        writeAscii(",\"name\":");
+        writeString(project.getName());
+        writeAscii(",\"lastModified\":");
+        writeDecimal(project.getLastModified().getTimeInMillis());
+        writeAscii(",\"projectStart\":");
+        writeDecimal(project.getProjectStart().getTimeInMillis());
+        writeAscii("}\n");
+    }
+
+    @Override
+    void writeDevice(Project project, Device device) throws IOException {
+        writeAscii("{\"type\":\"device\",\"project\":");
+        writeString(project.getInternalId());
+        writeAscii(",\"address\":");
+        writeString(device.getAddress());
+        writeAscii(",\"individualAddress\":");
+        writeDecimal(device.getIndividualAddress());
+        writeAscii(",\"name\":");
+        writeString(device.getName());
+        writeAscii("}\n");
+    }
+
+    @Override
+    void writeGroupAddress(Project project, GroupAddress groupAddress) throws IOException {
+        writeAscii("{\"type\":\"groupaddress\",\"project\":");
+        writeString(project.getInternalId());
+        writeAscii(",\"address\":");
+        writeString(groupAddress.getAddress());
+        writeAscii(",\"name\":");
+        writeString(groupAddress.getDefinedName());
+        writeAscii(",\"dpt\":");
+        if (groupAddress.getMainType() != GroupAddress.UNSPECIFIED) {
+            writeByte('"');
+            writeDataPointType(groupAddress);
+            writeByte('"');
+        } else {
+            writeAscii("null");
+        }
+        writeAscii(",\"mainType\":");
+        writeDecimal(groupAddress.getMainType());
+        writeAscii(",\"subType\":");
+        writeDecimal(groupAddress.getSubType());
+        writeAscii(groupAddress.isConnected() ? ",\"connected\":true" : ",\"connected\":false");
+        writeAscii(groupAddress.isUserConfigured() ? ",\"userConfigured\":true}\n" : ",\"userConfigured\":false}\n");
+    }
+
+    @Override
+    void writeEnd() throws IOException {
+    }
+
+    /**
+     * Writes a JSON string literal
+     *
+     * @param value string, null is written as null literal
+     * @throws IOException
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c == '\n') {
+                writeAscii("\\n");
+            } else if (c == '\r') {
+                writeAscii("\\r");
+            } else if (c == '\t') {
+                writeAscii("\\t");
+            } else if (c < 0x20) {
+                writeAscii("\\u00");
+                writeByte(HEX[c >>> 4]);
+                writeByte(HEX[c & 0x0F]);
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else {
+                i = writeNonAscii(value, i);
+            }
+        }
+        writeByte('"');
+    }
+
+}
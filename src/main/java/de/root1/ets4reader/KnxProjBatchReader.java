@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads many .knxproj files concurrently. All readers share one
+ * {@link SharedDptCache}, so manufacturer application files used by several
+ * projects are parsed only once. A file which can't be read doesn't fail the
+ * batch, its error is returned in its result.
+ * <p>
+ * Example:
+ * <pre>
+ * KnxProjBatchReader batchReader = new KnxProjBatchReader(new ReaderOptions(), 4);
+ * for (KnxProjBatchResult result : batchReader.read(files)) {
+ *     if (result.isSuccess()) {
+ *         List&lt;Project&gt; projects = result.getReader().getProjects();
+ *     }
+ * }
+ * </pre>
+ *
+ * @author achristian
+ */
+public class KnxProjBatchReader {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ReaderOptions options;
+    private final int parallelism;
+
+    /**
+     *
+     * @param options options for reading each file. If no shared DPT cache is
+     * set, a new one is used for each batch. Set
+     * {@link SharedDptCache#getGlobal()} to keep tables between batches. A snapshot file is not used, as
+     * it can only hold a single .knxproj file.
+     * @param parallelism max. number of files read at the same time
+     */
+    public KnxProjBatchReader(ReaderOptions options, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.options = options.copy();
+        this.options.setSnapshotFile(null);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reads the given files. Returns when all files are done.
+     *
+     * @param knxprojFiles files to read
+     * @return one result per file, in the order of the given files
+     * @throws InterruptedException if interrupted while waiting for the
+     * files. Reading of all files is cancelled then.
+     */
+    public List<KnxProjBatchResult> read(Collection<File> knxprojFiles) throws InterruptedException {
+        final ReaderOptions batchOptions = options.copy();
+        if (batchOptions.getSharedDptCache() == null) {
+            batchOptions.setSharedDptCache(new SharedDptCache());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, knxprojFiles.size())), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "KnxProjBatchReader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<KnxProjReader>> futures = new ArrayList<>();
+            for (final File knxprojFile : knxprojFiles) {
+                futures.add(executor.submit(new Callable<KnxProjReader>() {
+
+                    @Override
+                    public KnxProjReader call() throws Exception {
+                        return new KnxProjReader(knxprojFile, batchOptions);
+                    }
+                }));
+            }
+
+            List<KnxProjBatchResult> results = new ArrayList<>();
+            int i = 0;
+            for (File knxprojFile : knxprojFiles) {
+                Future<KnxProjReader> future = futures.get(i++);
+                try {
+                    results.add(new KnxProjBatchResult(knxprojFile, future.get(), null));
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    log.warn("Cannot read " + knxprojFile.getAbsolutePath(), cause);
+                    results.add(new KnxProjBatchResult(knxprojFile, null, cause instanceof Exception ? (Exception) cause : ex));
+                }
+            }
+            return results;
+        } finally {
+            // cancels the remaining files if interrupted
+            executor.shutdownNow();
+        }
+    }
+
+}
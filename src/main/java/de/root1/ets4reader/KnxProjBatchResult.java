@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+
+/**
+ * Result of reading one file of a batch, see {@link KnxProjBatchReader}
+ *
+ * @author achristian
+ */
+public class KnxProjBatchResult {
+
+    private final File knxprojFile;
+    private final KnxProjReader reader;
+    private final Exception error;
+
+    KnxProjBatchResult(File knxprojFile, KnxProjReader reader, Exception error) {
+        this.knxprojFile = knxprojFile;
+        this.reader = reader;
+        this.error = error;
+    }
+
+    /**
+     * The read file
+     *
+     * @return .knxproj file
+     */
+    public File getFile() {
+        return knxprojFile;
+    }
+
+    /**
+     * Whether the file has been read successfully
+     *
+     * @return true, if reader is available
+     */
+    public boolean isSuccess() {
+        return reader != null;
+    }
+
+    /**
+     * Reader of the file
+     *
+     * @return reader, or null if reading failed
+     */
+    public KnxProjReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Error which occurred reading the file
+     *
+     * @return error, or null if reading succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "KnxProjBatchResult{" + "file=" + knxprojFile + ", success=" + isSuccess() + (error != null ? ", error=" + error : "") + '}';
+    }
+
+}
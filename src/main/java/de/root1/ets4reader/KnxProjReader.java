@@ -19,35 +19,27 @@
 package de.root1.ets4reader;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
-import org.jdom2.Comment;
-import org.jdom2.Document;
-import org.jdom2.Element;
 import org.jdom2.JDOMException;
-import org.jdom2.Namespace;
-import org.jdom2.input.SAXBuilder;
-import org.jdom2.output.Format;
-import org.jdom2.output.XMLOutputter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,29 +52,123 @@ public class KnxProjReader {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
     private final Pattern projectPattern = Pattern.compile("P-[0-9A-F]{4}");
-    private final Pattern manufacturerPattern = Pattern.compile("M-[0-9A-F]{4}");
-
-    // M-0083_A-004D-12-E268
-    // M-00C8_A-2820-40-090B-O00C5
-    private final Pattern manufacturerDevicePattern = Pattern.compile("M-[0-9A-F]{4}_[0-9A-F]-[0-9A-F]{4}-[0-9A-F]{2}-[0-9A-F]{4}(-[0-9A-Z]{1}[0-9A-F]{4})?");
 
     private final List<Project> projects = new ArrayList<>();
 
+    private final ReaderOptions options;
+
     /**
-     * Starts reading the project. This might take some time ...
+     * data for an incremental re-read, null if not enabled
+     */
+    private IncrementalState incrementalState;
+
+    private final LoadStatistics statistics = new LoadStatistics();
+
+    /**
+     * snapshots of the projects, created on first request
+     */
+    private volatile List<ProjectSnapshot> snapshots;
+
+    /**
+     * whether the user configuration file has been written by this reader
+     */
+    private boolean userConfigurationWritten;
+
+    /**
+     * Starts reading the project with default options. This might take some
+     * time ...
      *
      * @param knxprojFile
      * @throws IOException
      * @throws JDOMException
      */
     public KnxProjReader(File knxprojFile) throws IOException, JDOMException {
-        File tmpFolder = createTempDirectory();
-        log.debug("Extracting to {}", tmpFolder.getCanonicalPath());
-        extract(knxprojFile, tmpFolder);
+        this(knxprojFile, new ReaderOptions());
+    }
+
+    /**
+     * Starts reading the project. This might take some time ...
+     *
+     * @param knxprojFile
+     * @param options options for reading the project
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public KnxProjReader(File knxprojFile, ReaderOptions options) throws IOException, JDOMException {
+        this(knxprojFile, options, null);
+    }
+
+    /**
+     * Re-reads a changed project with the options of a previous reader. If
+     * incremental re-read is enabled in the options (see
+     * {@link ReaderOptions#setIncrementalReread(boolean)}), only those entries
+     * of the .knxproj file are parsed again, which have changed since the
+     * previous read. Otherwise the project is read completely. The result is
+     * the same as with a new reader.
+     *
+     * @param knxprojFile the changed .knxproj file
+     * @param previous previous reader of the same project
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public KnxProjReader(File knxprojFile, KnxProjReader previous) throws IOException, JDOMException {
+        this(knxprojFile, previous.options, previous.incrementalState);
+    }
 
-        readProjects(tmpFolder);
-        readDPT(tmpFolder);
+    private KnxProjReader(File knxprojFile, ReaderOptions options, IncrementalState previousState) throws IOException, JDOMException {
+        this.options = options;
+        if (!knxprojFile.exists()) {
+            throw new IllegalArgumentException("Given file '" + knxprojFile.getAbsolutePath() + "' does not exist");
+        }
+
+        long start = System.nanoTime();
+        SnapshotFile snapshotFile = options.getSnapshotFile() != null ? new SnapshotFile(options.getSnapshotFile()) : null;
+        if (snapshotFile != null) {
+            phaseStarted(LoadPhase.SNAPSHOT);
+            List<Project> snapshot = snapshotFile.read(knxprojFile);
+            start = phaseDone(LoadPhase.SNAPSHOT, start);
+            if (snapshot != null) {
+                log.info("Using snapshot {}", options.getSnapshotFile().getAbsolutePath());
+                projects.addAll(snapshot);
+                statistics.setFromSnapshot(true);
+                statistics.countProjects(projects);
+                loadCompleted(knxprojFile);
+                return;
+            }
+        }
+
+        if (options.isIncrementalReread()) {
+            incrementalState = new IncrementalState(previousState);
+        }
+        SymbolTable symbols = new SymbolTable();
+        phaseStarted(LoadPhase.OPEN_ARCHIVE);
+        try (ProjectArchive archive = new CountingProjectArchive(openArchive(knxprojFile, options), statistics)) {
+            start = phaseDone(LoadPhase.OPEN_ARCHIVE, start);
+            phaseStarted(LoadPhase.PARSE_PROJECTS);
+            readProjects(archive, options, previousState, symbols);
+            start = phaseDone(LoadPhase.PARSE_PROJECTS, start);
+            phaseStarted(LoadPhase.RESOLVE_DPT);
+            readDPT(archive, options, symbols);
+            start = phaseDone(LoadPhase.RESOLVE_DPT, start);
+        }
+        log.debug("{} distinct IDs read", symbols.size());
+        if (incrementalState != null) {
+            incrementalState.releasePrevious();
+        }
+        phaseStarted(LoadPhase.USER_CONFIGURATION);
         readUserConfiguration(knxprojFile);
+        for (Project project : projects) {
+            project.trimToSize();
+        }
+        phaseDone(LoadPhase.USER_CONFIGURATION, start);
+
+        if (snapshotFile != null) {
+            try {
+                snapshotFile.write(knxprojFile, projects);
+            } catch (IOException ex) {
+                log.warn("Cannot write snapshot " + options.getSnapshotFile().getAbsolutePath(), ex);
+            }
+        }
 
         for (Project project : projects) {
             for (Device device : project.getDeviceList()) {
@@ -92,30 +178,162 @@ public class KnxProjReader {
                 log.debug("Found groupaddress: {}", groupAddress);
             }
         }
-         log.debug("Deleting temp files {}" + tmpFolder.getAbsolutePath());
-         Path directory = Paths.get(tmpFolder.toURI());
-         Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-
-         @Override
-         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-         log.trace("delete file: {}", file);
-         Files.delete(file);
-         return FileVisitResult.CONTINUE;
-         }
-
-         @Override
-         public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-         log.trace("del direte: {}", dir);
-         Files.delete(dir);
-         return FileVisitResult.CONTINUE;
-         }
-
-         });
-         log.debug("Deleting temp files *DONE*");
+        statistics.countProjects(projects);
+        loadCompleted(knxprojFile);
+    }
+
+    /**
+     * Creates a reader which has not read anything yet
+     *
+     * @param options
+     */
+    private KnxProjReader(ReaderOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Reads a project and passes each project, device and group address to
+     * the visitor as soon as it has been read, instead of collecting them in
+     * lists. Memory use therefore doesn't grow with the number of group
+     * addresses. Group addresses are passed in document order, which differs
+     * from {@link Project#getGroupaddressList()}.
+     * <p>
+     * The streaming parser is always used. Snapshot file and incremental
+     * re-read options are ignored, as is parsing manufacturer files in
+     * parallel. The user configuration is applied to the first project, but
+     * is not updated with entries for group addresses with missing DPT.
+     * Progress is reported for {@link LoadPhase#OPEN_ARCHIVE} and
+     * {@link LoadPhase#PARSE_PROJECTS} only, DPTs are resolved while parsing.
+     *
+     * @param knxprojFile
+     * @param options options for reading the project
+     * @param visitor visitor to pass the projects, devices and group
+     * addresses to
+     * @return statistics of reading the project
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public static LoadStatistics visit(File knxprojFile, ReaderOptions options, ProjectVisitor visitor) throws IOException, JDOMException {
+        KnxProjReader reader = new KnxProjReader(options);
+        reader.stream(knxprojFile, visitor);
+        return reader.statistics;
+    }
+
+    private void stream(File knxprojFile, ProjectVisitor visitor) throws IOException, JDOMException {
+        if (!knxprojFile.exists()) {
+            throw new IllegalArgumentException("Given file '" + knxprojFile.getAbsolutePath() + "' does not exist");
+        }
+
+        long start = System.nanoTime();
+        phaseStarted(LoadPhase.OPEN_ARCHIVE);
+        try (ProjectArchive archive = new CountingProjectArchive(openArchive(knxprojFile, options), statistics)) {
+            start = phaseDone(LoadPhase.OPEN_ARCHIVE, start);
+            phaseStarted(LoadPhase.PARSE_PROJECTS);
+            VisitingProjectReader reader = new VisitingProjectReader(archive, options, new SymbolTable(), statistics, visitor);
+            // as with readUserConfiguration(), only the first project is configured
+            Map<String, UserConfiguration.Entry> userConfiguration = VisitingProjectReader.readUserConfiguration(UserConfiguration.getFile(knxprojFile));
+            for (String folder : archive.getFolders()) {
+                if (projectPattern.matcher(folder).find()) {
+                    Utils.checkInterrupted();
+                    reader.read(folder, userConfiguration);
+                    userConfiguration = null;
+                }
+            }
+            phaseDone(LoadPhase.PARSE_PROJECTS, start);
+        }
+        loadCompleted(knxprojFile);
+    }
+
+    /**
+     * Reads a project asynchronously on the given executor. Progress is
+     * reported to the progress listener of the options, if set. Cancelling
+     * the returned future with interruption stops reading at the next
+     * extracted entry or with the next read from a project or manufacturer
+     * file, and removes temp files.
+     *
+     * @param knxprojFile
+     * @param options options for reading the project
+     * @param executor executor to read the project on
+     * @return future of the reader. If reading fails, the cause of the
+     * {@link java.util.concurrent.ExecutionException} is the exception the
+     * constructor would have thrown.
+     */
+    public static Future<KnxProjReader> readAsync(final File knxprojFile, final ReaderOptions options, Executor executor) {
+        FutureTask<KnxProjReader> task = new FutureTask<>(new Callable<KnxProjReader>() {
+
+            @Override
+            public KnxProjReader call() throws Exception {
+                return new KnxProjReader(knxprojFile, options);
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Reports the start of a phase and stops reading if the thread has been
+     * interrupted
+     *
+     * @param phase
+     * @throws InterruptedIOException
+     */
+    private void phaseStarted(LoadPhase phase) throws InterruptedIOException {
+        Utils.checkInterrupted();
+        LoadProgressListener listener = options.getProgressListener();
+        if (listener != null) {
+            listener.phaseStarted(phase);
+        }
+    }
+
+    /**
+     * Records the time of a finished phase
+     *
+     * @param phase
+     * @param start start of the phase, from {@link System#nanoTime()}
+     * @return start of the next phase
+     */
+    private long phaseDone(LoadPhase phase, long start) {
+        long now = System.nanoTime();
+        statistics.addPhaseTime(phase, now - start);
+        return now;
+    }
+
+    private void loadCompleted(File knxprojFile) {
+        log.debug("Read {}: {}", knxprojFile.getName(), statistics);
+        LoadStatisticsListener listener = options.getStatisticsListener();
+        if (listener != null) {
+            try {
+                listener.loadCompleted(knxprojFile, statistics);
+            } catch (RuntimeException ex) {
+                log.warn("Statistics listener failed", ex);
+            }
+        }
     }
 
     /**
-     * Gets a list of projects. Typically the list has size=1
+     * Gets the statistics of reading the project: time per phase, bytes read,
+     * manufacturer files parsed and counts of devices and group addresses
+     *
+     * @return statistics of this reader
+     */
+    public LoadStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Whether reading the project has written the user configuration file,
+     * f.i. to add entries for group addresses with missing DPT
+     *
+     * @return true, if .knxproj.user.xml has been written
+     */
+    boolean isUserConfigurationWritten() {
+        return userConfigurationWritten;
+    }
+
+    /**
+     * Gets a list of projects. Typically the list has size=1. Projects are
+     * not thread safe, use {@link #getSnapshots()} to share them between
+     * threads.
      *
      * @return list of projects found in .knxproj file
      */
@@ -123,6 +341,33 @@ public class KnxProjReader {
         return projects;
     }
 
+    /**
+     * Gets immutable snapshots of the projects, which can be shared by
+     * several threads without locking, unlike the projects of
+     * {@link #getProjects()}. The snapshots are created on first call and
+     * need about as much memory as the projects.
+     *
+     * @return unmodifiable list of snapshots, in order of
+     * {@link #getProjects()}
+     */
+    public List<ProjectSnapshot> getSnapshots() {
+        List<ProjectSnapshot> result = snapshots;
+        if (result == null) {
+            synchronized (this) {
+                result = snapshots;
+                if (result == null) {
+                    List<ProjectSnapshot> list = new ArrayList<>(projects.size());
+                    for (Project project : projects) {
+                        list.add(ProjectSnapshot.of(project));
+                    }
+                    result = Collections.unmodifiableList(list);
+                    snapshots = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public static File createTempDirectory() throws IOException {
         final File temp;
 
@@ -138,15 +383,49 @@ public class KnxProjReader {
         return (temp);
     }
 
-    private void extract(File knxprojfile, File targetDir) {
+    /**
+     * Opens the .knxproj file, either directly or extracted to a temp folder
+     *
+     * @param knxprojFile
+     * @param options
+     * @return archive, to be closed by the caller
+     * @throws IOException
+     */
+    ProjectArchive openArchive(File knxprojFile, ReaderOptions options) throws IOException {
+        if (!options.isExtractToTempFolder()) {
+            log.debug("Reading directly from {}", knxprojFile.getAbsolutePath());
+            return new ZipProjectArchive(knxprojFile);
+        }
+        File tmpFolder = createTempDirectory();
+        log.debug("Extracting to {}", tmpFolder.getCanonicalPath());
+        Map<String, Long> crcs;
+        try {
+            crcs = extract(knxprojFile, tmpFolder);
+        } catch (InterruptedIOException ex) {
+            // deletes what has been extracted so far
+            new FolderProjectArchive(tmpFolder, true).close();
+            throw ex;
+        }
+        return new FolderProjectArchive(tmpFolder, true, crcs);
+    }
+
+    /**
+     * Extracts the .knxproj file
+     *
+     * @param knxprojfile
+     * @param targetDir
+     * @return entry path <-> CRC-32 of all extracted files
+     * @throws InterruptedIOException if the thread has been interrupted
+     */
+    private Map<String, Long> extract(File knxprojfile, File targetDir) throws InterruptedIOException {
+        Map<String, Long> crcs = new HashMap<>();
         try {
-            if (!knxprojfile.exists()) {
-                throw new IllegalArgumentException("Given file '"+knxprojfile.getAbsolutePath()+"' does not exist");
-            }
             // Open the zip file
             try (ZipFile zipFile = new ZipFile(knxprojfile)) {
+                byte[] bytes = new byte[64 * 1024];
                 Enumeration<?> enu = zipFile.entries();
                 while (enu.hasMoreElements()) {
+                    Utils.checkInterrupted();
                     ZipEntry zipEntry = (ZipEntry) enu.nextElement();
 
                     String name = zipEntry.getName();
@@ -162,325 +441,115 @@ public class KnxProjReader {
                         continue;
                     }
 
+                    crcs.put(name, zipEntry.getCrc());
+
                     File parent = file.getParentFile();
                     if (parent != null) {
                         parent.mkdirs();
                     }
 
-                    FileOutputStream fos;
                     // Extract the file
-                    try (InputStream is = zipFile.getInputStream(zipEntry)) {
-                        fos = new FileOutputStream(file);
-                        byte[] bytes = new byte[1024];
+                    try (InputStream is = zipFile.getInputStream(zipEntry);
+                            FileOutputStream fos = new FileOutputStream(file)) {
                         int length;
                         while ((length = is.read(bytes)) >= 0) {
                             fos.write(bytes, 0, length);
                         }
                     }
-                    fos.close();
 
                 }
             } catch (ZipException ex) {
                 log.error("Error opening '"+knxprojfile.getAbsolutePath()+"'", ex);
             }
+        } catch (InterruptedIOException e) {
+            throw e;
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return crcs;
     }
 
-    private void readProjects(File tmpFolder) throws IOException, JDOMException {
-        File[] projFolders = tmpFolder.listFiles(new FileFilter() {
-
-            @Override
-            public boolean accept(File pathname) {
-                if (pathname.isDirectory()) {
-                    String name = pathname.getName();
-                    Matcher matcher = projectPattern.matcher(name);
-                    return matcher.find();
-
-                }
-                return false;
+    private void readProjects(final ProjectArchive archive, final ReaderOptions options, IncrementalState previousState, final SymbolTable symbols) throws IOException, JDOMException {
+        List<String> folders = new ArrayList<>();
+        for (String folder : archive.getFolders()) {
+            Matcher matcher = projectPattern.matcher(folder);
+            if (matcher.find()) {
+                folders.add(folder);
             }
-        });
-
-        for (File projFolder : projFolders) {
-            Project project = new Project(projFolder);
-            log.info("Found project: {}", project);
-            projects.add(project);
         }
 
-    }
-
-    private void readDPT(File tmpFolder) throws JDOMException, IOException {
-        /**
-         * devicefile <-> commObjRefDptCache
-         */
-        Map<String, Map<String, String>> manufacturerCache = new HashMap<>();
-
-        for (Project project : projects) {
-
-            for (GroupAddress groupAddress : project.getGroupaddressList()) {
-                String internalId = groupAddress.getInternalId();
-
-                boolean connectedToDevice = false;
-
-                for (Device device : project.getDeviceList()) {
-                    if (connectedToDevice) {
-                        break;
+        Project[] read = new Project[folders.size()];
+        Project[] templates = new Project[folders.size()];
+        // index in folders <-> task reading the project, if read in parallel
+        Map<Integer, ReadTask<Project>> tasks = new TreeMap<>();
+        for (int i = 0; i < folders.size(); i++) {
+            final String folder = folders.get(i);
+            Project template = previousState != null ? previousState.getTemplate(folder) : null;
+            if (template != null && previousState.isUnchanged(archive, Project.getProjectFile(archive, folder))
+                    && previousState.isUnchanged(archive, Project.getDataFile(folder))) {
+                log.debug("Project {} is unchanged", folder);
+                read[i] = template.copy();
+                templates[i] = template;
+            } else if (options.getForkJoinPool() != null) {
+                tasks.put(i, new ReadTask<Project>() {
+
+                    @Override
+                    Project read() throws IOException, JDOMException {
+                        return new Project(archive, folder, options, symbols);
                     }
-                    Map<String, List<String>> refMap = device.getRefMap();
-
-                    String comObjInstanceRef = Utils.getKeyForValue(refMap, internalId);
-
-                    
-                    if (comObjInstanceRef != null && !connectedToDevice) {
-                        connectedToDevice = true;
-                        // It's a matching device
-                        String dpt = device.getDptMap().get(comObjInstanceRef);
-
-                        if (dpt == null) {
-
-                            // extract manufacturer refId (which is folder name)
-                            String manufacturerId;
-                            Matcher matcher = manufacturerPattern.matcher(comObjInstanceRef);
-                            if (matcher.find()) {
-                                manufacturerId = comObjInstanceRef.substring(matcher.start(), matcher.end());
-                            } else {
-                                log.error("No manufacturer found for {}", comObjInstanceRef);
-                                manufacturerId = "";
-                            }
-
-                            // extract device xml file
-                            String deviceFileName;
-                            Matcher deviceMatcher = manufacturerDevicePattern.matcher(comObjInstanceRef);
-                            if (deviceMatcher.find()) {
-                                deviceFileName = comObjInstanceRef.substring(deviceMatcher.start(), deviceMatcher.end());
-                            } else {
-                                log.error("No device found for {}", comObjInstanceRef);
-                                deviceFileName = "";
-                            }
-
-                            Map<String, String> cache = manufacturerCache.get(deviceFileName);
-
-                            if (cache == null) {
-                                File mFolder = new File(tmpFolder, manufacturerId);
-                                File mFile = new File(mFolder, deviceFileName + ".xml");
-                                log.debug("Create cache for " + deviceFileName);
-                                cache = createCache(mFile);
-                                log.debug("Create cache for {}", deviceFileName + " ... *DONE*");
-                                manufacturerCache.put(deviceFileName, cache);
-
-                            } else {
-                                log.debug("Using cache for {}", deviceFileName);
-                            }
-
-                            dpt = cache.get(comObjInstanceRef);
-                            log.debug("Found device defined DPT '{}' for GA {}", dpt, groupAddress.getAddress());
-                        } else {
-                            log.debug("Found ETS defined DPT '{}' for GA {}", dpt, groupAddress.getAddress());
-                        }
-
-                        if (dpt != null) {
-
-                            dpt = dpt.split(" ")[0];
-                            String[] split = dpt.split("-");
-                            if (split[0].equals("DPST")) {
-                                int mainType = Integer.parseInt(split[1]);
-                                int subType = Integer.parseInt(split[2]);
-                                groupAddress.setDataPointType(mainType, subType);
-                            } else if (split[0].equals("DPT")) {
-                                int mainType = Integer.parseInt(split[1]);
-                                int subType = 0;
-                                groupAddress.setDataPointType(mainType, subType);
-                            }
-                        } else {
-                            log.warn(">>>>>> Groupaddress {} has no DPT! Please configure in ETS! <<<<<<", groupAddress.getAddress());
-                        }
-
-                    }
-                }
-                if (!connectedToDevice) {
-                    log.debug(">>>>>> Groupaddress {} is not connected to any device in ETS! <<<<<<", groupAddress.getAddress());
-                }
-                groupAddress.setConnected(connectedToDevice);
+                });
+            } else {
+                Utils.checkInterrupted();
+                read[i] = new Project(archive, folder, options, symbols);
             }
-
         }
-    }
-
-    private Map<String, String> createCache(File mFile) throws JDOMException, IOException {
-
-        // ComObjectRef -> DPT
-        Map<String, String> cache = new HashMap<>();
-
-        SAXBuilder builder = new SAXBuilder();
-
-        Document document = (Document) builder.build(mFile);
-        Element rootElement = document.getRootElement();
-        Namespace ns = rootElement.getNamespace();
-
-        // ComObject ID -> DPT
-        Map<String, String> comObjectDptCache = new HashMap<>();
-
-        Element applicationProgramsElement = rootElement.getChild("ManufacturerData", ns).getChild("Manufacturer", ns).getChild("ApplicationPrograms", ns);
-
-        // Cache all comobject's DPTs
-        Element comObjectTable = applicationProgramsElement.getChild("ApplicationProgram", ns).getChild("Static", ns).getChild("ComObjectTable", ns);
-        List<Element> comObjects = comObjectTable.getChildren("ComObject", ns);
-        for (Element comObject : comObjects) {
-            String id = comObject.getAttributeValue("Id");
-            String dpt = comObject.getAttributeValue("DatapointType");
-            if (dpt == null) {
-                log.debug("ManufacturerDevice File {} comobject id={} has no DPT?!", mFile.getAbsolutePath(), id);
+        if (!tasks.isEmpty()) {
+            log.debug("Reading {} projects in parallel", tasks.size());
+            List<Project> results = ReadTask.invokeAll(options.getForkJoinPool(), new ArrayList<>(tasks.values()));
+            int result = 0;
+            for (int i : tasks.keySet()) {
+                read[i] = results.get(result++);
             }
-            comObjectDptCache.put(id, dpt);
         }
 
-        Element comObjectRefs = applicationProgramsElement.getChild("ApplicationProgram", ns).getChild("Static", ns).getChild("ComObjectRefs", ns);
-        List<Element> children = comObjectRefs.getChildren("ComObjectRef", ns);
-        for (Element comObjectRefElement : children) {
-            String refId = comObjectRefElement.getAttributeValue("Id");
-            String comObjectId = comObjectRefElement.getAttributeValue("RefId");
-
-            String dpt = comObjectRefElement.getAttributeValue("DatapointType");
-            if (dpt == null) {
-                // ask comobject cache
-                dpt = comObjectDptCache.get(comObjectId);
-            }
-
-            if (dpt == null) {
-                log.debug("ComObjRef '{}' has no DPT??? file: {}", refId, mFile.getAbsolutePath());
+        // merged in document order, as if read one after another
+        for (int i = 0; i < folders.size(); i++) {
+            String folder = folders.get(i);
+            Project project = read[i];
+            if (incrementalState != null) {
+                Project template = templates[i] != null ? templates[i] : project.copy();
+                incrementalState.addStamp(archive, Project.getProjectFile(archive, folder));
+                incrementalState.addStamp(archive, Project.getDataFile(folder));
+                incrementalState.putTemplate(folder, template);
             }
-
-            cache.put(refId, dpt);
+            log.info("Found project: {}", project);
+            projects.add(project);
         }
 
-        return cache;
     }
 
-    private void readUserConfiguration(File knxprojFile) {
-        try {
-            File userConfigFile = new File(knxprojFile.getAbsolutePath() + ".user.xml");
-
-            if (projects.isEmpty()) {
-                log.warn("No project found. Skipping userconfiguration.");
-                return;
-            }
-            
-            Project project = projects.get(0);
-
-            List<GroupAddress> gaWithMissingConfig = new ArrayList<>();
-
-            // get unconnected or dpt-undefined GAs
-            List<GroupAddress> groupaddressList = project.getGroupaddressList();
-            for (GroupAddress ga : groupaddressList) {
-                if (!ga.isConnected() || ga.getMainType() == GroupAddress.UNSPECIFIED) {
-                    log.info("{} has missing DPT or is unconnected", ga);
-                    gaWithMissingConfig.add(ga);
-                }
-            }
-
-
-            boolean needToSafe = false;
-            
-            SAXBuilder builder = new SAXBuilder();
-            Document document;
-            if (userConfigFile.exists()) {
-                document = (Document) builder.build(userConfigFile);
-            } else {
-                document = new Document(new Element("knxprojectuserconfiguration"));
-                needToSafe = true;
-            }
-            
-            Element rootElement = document.getRootElement();
-
-            // Get already known GAs from .knxproj.user.xml File --> kind of cache
-            List<String> alreadyKnownUserConfigGa = new ArrayList<>();
-            List<Element> gaElements = rootElement.getChildren("ga");
-            for (Element gaElement : gaElements) {
-                alreadyKnownUserConfigGa.add(gaElement.getAttributeValue("address"));
-            }
-
-
-            if (!gaWithMissingConfig.isEmpty()) {
-                for (GroupAddress ga : gaWithMissingConfig) {
-
-                    if (!alreadyKnownUserConfigGa.contains(ga.getAddress())) {
-                        Element gaElement = new Element("ga");
-                        
-                        gaElement.addContent(new Comment(" \""+ga.getName()+"\" "));
-                        gaElement.setAttribute("address", ga.getAddress());
-                        gaElement.setAttribute("dpt", "");
-                        rootElement.addContent(gaElement);
-                        needToSafe = true;
-                    }
-
-                }
-
-            }
-            
-            
-
-            List<Element> children = rootElement.getChildren("ga");
-            for (Element gaElement : children) {
-                String address = gaElement.getAttributeValue("address");
-                
-                // !!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!1
-                // TODO: TO BE TESTED!
-                if (System.getProperty("purge")!=null) {
-                    GroupAddress ga = project.getGroupAddress(address);
-                    if (ga.isConnected() && ga.getMainType()!=GroupAddress.UNSPECIFIED) {
-                        rootElement.removeContent(gaElement);
-                        log.info("PURGE: Removing GA={} from userconfig because of ETS config now available");
-                        needToSafe = true;
-                        continue;
-                    }
-                }
-                
-                String dpt = gaElement.getAttributeValue("dpt");
-
-                if (dpt != null && dpt.isEmpty()) {
-                    dpt = null;
-                }
-                String name = gaElement.getAttributeValue("name");
-                if (name != null && name.isEmpty()) {
-                    name = null;
-                }
-
-                GroupAddress groupAddress = project.getGroupAddress(address);
-
-                if (groupAddress != null && dpt != null) {
-
-                    String[] split = dpt.split("\\.");
+    private void readDPT(ProjectArchive archive, ReaderOptions options, SymbolTable symbols) throws JDOMException, IOException {
+        new DptResolver(archive, options, incrementalState, symbols, statistics).resolve(projects);
+    }
 
-                    groupAddress.setDataPointType(Integer.parseInt(split[0]), Integer.parseInt(split[1]));
-                    groupAddress.setConnected(true);
+    /**
+     * Applies the user configuration (.knxproj.user.xml) to the first project
+     * and adds entries for group addresses with missing DPT
+     *
+     * @param knxprojFile
+     */
+    void readUserConfiguration(File knxprojFile) {
+        File userConfigFile = UserConfiguration.getFile(knxprojFile);
 
-                    if (name != null) {
-                        groupAddress.setName(name);
-                    }
-                    groupAddress.setUserConfigured(true);
-                } else if (dpt!=null){
-                    groupAddress = new GroupAddress(address, dpt, name);
-                    groupAddress.setConnected(true);
-                    project.addGroupAddress(groupAddress);
-                    groupAddress.setUserConfigured(true);
-                }
-            }
-            
-            if (needToSafe) {
-                // new XMLOutputter().output(doc, System.out);
-                XMLOutputter xmlOutput = new XMLOutputter();
-
-                // display nice nice
-                xmlOutput.setFormat(Format.getPrettyFormat());
-                xmlOutput.output(document, new FileWriter(userConfigFile));
-            }
+        if (projects.isEmpty()) {
+            log.warn("No project found. Skipping userconfiguration.");
+            return;
+        }
 
-        } catch (JDOMException ex) {
-            ex.printStackTrace();
-        } catch (IOException ex) {
-            ex.printStackTrace();
+        try {
+            userConfigurationWritten = UserConfiguration.read(userConfigFile).merge(projects.get(0), options.isPurgeUserConfiguration());
+        } catch (JDOMException | IOException ex) {
+            log.error("Error applying user configuration " + userConfigFile.getAbsolutePath(), ex);
         }
     }
 
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jdom2.JDOMException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a project up to date with its .knxproj file and user configuration
+ * (.knxproj.user.xml). Changes of both files are detected with a
+ * {@link WatchService} on their folder. After changes have settled for the
+ * debounce delay, the project is read again in the background with
+ * {@link KnxProjReader#KnxProjReader(File, KnxProjReader)}, so an incremental
+ * re-read is used if enabled in the options.
+ * <p>
+ * The new reader replaces the active one only after it has been read
+ * completely, {@link #getReader()} therefore always returns a completely read
+ * project. Registered {@link ProjectChangeListener}s are then told which
+ * group addresses and devices have changed.
+ * <pre>
+ * KnxProjWatcher watcher = new KnxProjWatcher(file, options);
+ * watcher.addChangeListener(listener);
+ * watcher.start();
+ * ...
+ * ProjectSnapshot project = watcher.getSnapshots().get(0);
+ * ...
+ * watcher.close();
+ * </pre>
+ *
+ * @author achristian
+ */
+public class KnxProjWatcher implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * default time changes have to settle before the project is read again
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 2000;
+
+    private final File knxprojFile;
+    private final File userConfigFile;
+    private final AtomicReference<KnxProjReader> reader = new AtomicReference<>();
+    private final List<ProjectChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private Thread thread;
+
+    /**
+     * size and last modification of both files when they have been read,
+     * only accessed by the watcher thread after start
+     */
+    private long knxprojLength;
+    private long knxprojModified;
+    private long userConfigLength;
+    private long userConfigModified;
+
+    /**
+     * Reads the project and starts watching its files. Changes are not
+     * processed until {@link #start()} has been called.
+     *
+     * @param knxprojFile
+     * @param options options for reading the project
+     * @throws IOException
+     * @throws JDOMException
+     */
+    public KnxProjWatcher(File knxprojFile, ReaderOptions options) throws IOException, JDOMException {
+        this.knxprojFile = knxprojFile.getAbsoluteFile();
+        this.userConfigFile = UserConfiguration.getFile(this.knxprojFile);
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            // register before reading, so changes during the first read are not missed
+            this.knxprojFile.getParentFile().toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            recordFileState();
+            KnxProjReader initial = new KnxProjReader(this.knxprojFile, options);
+            if (initial.isUserConfigurationWritten()) {
+                recordUserConfigState();
+            }
+            initial.getSnapshots();
+            reader.set(initial);
+        } catch (IOException | JDOMException | RuntimeException ex) {
+            watchService.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Sets the time changes have to settle before the project is read again.
+     * Editors and ETS typically write a file in several steps, which should
+     * result in a single re-read.
+     *
+     * @param delay
+     * @param unit
+     * @return this watcher
+     */
+    public KnxProjWatcher setDebounceDelay(long delay, TimeUnit unit) {
+        this.debounceMillis = unit.toMillis(delay);
+        return this;
+    }
+
+    /**
+     * Adds a listener to be told about re-read projects
+     *
+     * @param listener
+     */
+    public void addChangeListener(ProjectChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ProjectChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts processing file changes on a daemon thread
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Watcher has already been started");
+        }
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "KnxProjWatcher-" + knxprojFile.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The active reader, replaced after a changed file has been read
+     * completely
+     *
+     * @return reader of the project
+     */
+    public KnxProjReader getReader() {
+        return reader.get();
+    }
+
+    /**
+     * Immutable snapshots of the active reader's projects, see
+     * {@link KnxProjReader#getSnapshots()}. After a re-read, the snapshots
+     * are replaced together with the reader.
+     *
+     * @return unmodifiable list of snapshots
+     */
+    public List<ProjectSnapshot> getSnapshots() {
+        return reader.get().getSnapshots();
+    }
+
+    /**
+     * The watched file
+     *
+     * @return .knxproj file
+     */
+    public File getFile() {
+        return knxprojFile;
+    }
+
+    /**
+     * Stops watching. A running re-read is cancelled, the active reader
+     * stays available.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        Thread watcherThread;
+        synchronized (this) {
+            watcherThread = thread;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isRelevant(watchService.take())) {
+                    continue;
+                }
+                // wait until there are no more changes for the debounce delay
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isRelevant(key);
+                }
+                if (isFileStateChanged()) {
+                    reload();
+                } else {
+                    log.debug("{} unchanged, f.i. written by the reader itself", knxprojFile.getName());
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ex) {
+            log.debug("Stopped watching {}", knxprojFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Consumes the events of a key
+     *
+     * @param key
+     * @return true, if the .knxproj file or user configuration might have
+     * changed
+     */
+    private boolean isRelevant(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+                continue;
+            }
+            String name = ((Path) event.context()).getFileName().toString();
+            if (name.equals(knxprojFile.getName()) || name.equals(userConfigFile.getName())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    private void recordFileState() {
+        recordKnxprojState();
+        recordUserConfigState();
+    }
+
+    private void recordKnxprojState() {
+        knxprojLength = knxprojFile.length();
+        knxprojModified = knxprojFile.lastModified();
+    }
+
+    private void recordUserConfigState() {
+        userConfigLength = userConfigFile.length();
+        userConfigModified = userConfigFile.lastModified();
+    }
+
+    private boolean isFileStateChanged() {
+        return knxprojLength != knxprojFile.length()
+                || knxprojModified != knxprojFile.lastModified()
+                || userConfigLength != userConfigFile.length()
+                || userConfigModified != userConfigFile.lastModified();
+    }
+
+    /**
+     * Reads the project again and replaces the active reader
+     *
+     * @throws InterruptedException if the watcher has been closed meanwhile
+     */
+    private void reload() throws InterruptedException {
+        if (!knxprojFile.exists()) {
+            log.info("{} has been removed, keeping the last read project", knxprojFile.getAbsolutePath());
+            return;
+        }
+        KnxProjReader previous = reader.get();
+        KnxProjReader current;
+        // before reading, so changes during the read are processed afterwards
+        recordFileState();
+        try {
+            log.info("Reading changed {}", knxprojFile.getAbsolutePath());
+            current = new KnxProjReader(knxprojFile, previous);
+        } catch (InterruptedIOException ex) {
+            throw new InterruptedException(ex.getMessage());
+        } catch (IOException | JDOMException | RuntimeException ex) {
+            log.warn("Reading changed " + knxprojFile.getAbsolutePath() + " failed, keeping the last read project", ex);
+            for (ProjectChangeListener listener : listeners) {
+                try {
+                    listener.reloadFailed(knxprojFile, ex);
+                } catch (RuntimeException listenerException) {
+                    log.warn("Change listener failed", listenerException);
+                }
+            }
+            return;
+        }
+        if (current.isUserConfigurationWritten()) {
+            // no change to read again
+            recordUserConfigState();
+        }
+        // created before the swap, so the first caller doesn't have to wait
+        current.getSnapshots();
+        reader.set(current);
+
+        ProjectChangeEvent event = new ProjectChangeEvent(knxprojFile, previous, current);
+        log.info("Changed {}", event);
+        for (ProjectChangeListener listener : listeners) {
+            try {
+                listener.projectChanged(event);
+            } catch (RuntimeException ex) {
+                log.warn("Change listener failed", ex);
+            }
+        }
+    }
+
+}
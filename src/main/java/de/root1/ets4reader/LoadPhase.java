@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+/**
+ * Phases of reading a .knxproj file
+ *
+ * @author achristian
+ */
+public enum LoadPhase {
+
+    /**
+     * Reading the projects from a snapshot file, or checking that it can't be
+     * used
+     */
+    SNAPSHOT,
+    /**
+     * Opening the .knxproj file, including extraction to a temp folder if
+     * enabled
+     */
+    OPEN_ARCHIVE,
+    /**
+     * Parsing Project.xml and 0.xml of all projects
+     */
+    PARSE_PROJECTS,
+    /**
+     * Resolving DPTs, including parsing of manufacturer application files
+     */
+    RESOLVE_DPT,
+    /**
+     * Applying and updating the user configuration (.knxproj.user.xml)
+     */
+    USER_CONFIGURATION
+
+}
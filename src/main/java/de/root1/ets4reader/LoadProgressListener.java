@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+/**
+ * Receives the progress of reading a .knxproj file. See
+ * {@link ReaderOptions#setProgressListener(LoadProgressListener)}.
+ *
+ * @author achristian
+ */
+public interface LoadProgressListener {
+
+    /**
+     * Called when a phase of reading starts. Phases are executed in the order
+     * of {@link LoadPhase}, skipped phases are not reported.
+     *
+     * @param phase the started phase
+     */
+    void phaseStarted(LoadPhase phase);
+
+    /**
+     * Called during {@link LoadPhase#RESOLVE_DPT} when the DPT table of a
+     * manufacturer application file is available, either parsed or taken
+     * from cache. If manufacturer files are parsed in parallel, this is called
+     * from the executor's threads.
+     *
+     * @param applicationId ID of the application, f.i. M-0083_A-0030-20-FCCB
+     * @param done number of application files done so far
+     * @param total number of application files required, -1 if not known in
+     * advance, f.i. with
+     * {@link KnxProjReader#visit(java.io.File, ReaderOptions, ProjectVisitor)}
+     */
+    void manufacturerFileDone(String applicationId, int done, int total);
+
+}
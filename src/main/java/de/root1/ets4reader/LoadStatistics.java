@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statistics of reading a .knxproj file: time per phase, bytes read per
+ * archive entry, use of manufacturer file caches and counts of the read
+ * devices and group addresses.
+ *
+ * @author achristian
+ */
+public class LoadStatistics {
+
+    private final Map<LoadPhase, Long> phaseNanos = new EnumMap<>(LoadPhase.class);
+
+    /**
+     * entry path <-> bytes read, written by parallel manufacturer file parsing
+     */
+    private final Map<String, Long> bytesRead = new HashMap<>();
+
+    private final AtomicInteger manufacturerFilesParsed = new AtomicInteger();
+    private final AtomicInteger manufacturerFilesCached = new AtomicInteger();
+
+    private boolean fromSnapshot;
+    private int deviceCount;
+    private int groupAddressCount;
+    private int unconnectedCount;
+    private int withoutDptCount;
+
+    void addPhaseTime(LoadPhase phase, long nanos) {
+        Long time = phaseNanos.get(phase);
+        phaseNanos.put(phase, time == null ? nanos : time + nanos);
+    }
+
+    synchronized void addBytesRead(String path, long bytes) {
+        Long read = bytesRead.get(path);
+        bytesRead.put(path, read == null ? bytes : read + bytes);
+    }
+
+    void manufacturerFileParsed() {
+        manufacturerFilesParsed.incrementAndGet();
+    }
+
+    void manufacturerFileCached() {
+        manufacturerFilesCached.incrementAndGet();
+    }
+
+    void setFromSnapshot(boolean fromSnapshot) {
+        this.fromSnapshot = fromSnapshot;
+    }
+
+    /**
+     * Counts devices and group addresses of the completely read projects
+     *
+     * @param projects
+     */
+    void countProjects(List<Project> projects) {
+        deviceCount = 0;
+        groupAddressCount = 0;
+        unconnectedCount = 0;
+        withoutDptCount = 0;
+        for (Project project : projects) {
+            deviceCount += project.getDeviceList().size();
+            for (GroupAddress groupAddress : project.getGroupaddressList()) {
+                countGroupAddress(groupAddress);
+            }
+        }
+    }
+
+    void countDevice() {
+        deviceCount++;
+    }
+
+    /**
+     * Counts a resolved group address
+     *
+     * @param groupAddress
+     */
+    void countGroupAddress(GroupAddress groupAddress) {
+        groupAddressCount++;
+        if (!groupAddress.isConnected()) {
+            unconnectedCount++;
+        }
+        if (groupAddress.getMainType() == GroupAddress.UNSPECIFIED) {
+            withoutDptCount++;
+        }
+    }
+
+    /**
+     * Wall time spent in a phase
+     *
+     * @param phase
+     * @param unit unit of the returned time
+     * @return time, 0 if phase was not executed
+     */
+    public long getPhaseTime(LoadPhase phase, TimeUnit unit) {
+        Long nanos = phaseNanos.get(phase);
+        return nanos == null ? 0 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Uncompressed bytes read per archive entry. Parsers stop reading as soon
+     * as they have what they need, so this may be less than the entry size.
+     *
+     * @return entry path <-> bytes read
+     */
+    public synchronized Map<String, Long> getBytesRead() {
+        return Collections.unmodifiableMap(new HashMap<>(bytesRead));
+    }
+
+    /**
+     * Sum of all bytes read from archive entries
+     *
+     * @return bytes read
+     */
+    public synchronized long getTotalBytesRead() {
+        long total = 0;
+        for (long bytes : bytesRead.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Number of manufacturer application files which have been parsed
+     *
+     * @return number of parsed files
+     */
+    public int getManufacturerFilesParsed() {
+        return manufacturerFilesParsed.get();
+    }
+
+    /**
+     * Number of manufacturer application files whose DPT table was taken
+     * from the in-memory or persistent DPT cache
+     *
+     * @return number of files served from cache
+     */
+    public int getManufacturerFilesCached() {
+        return manufacturerFilesCached.get();
+    }
+
+    /**
+     * Whether the projects have been restored from a snapshot file
+     *
+     * @return true, if restored from snapshot
+     */
+    public boolean isFromSnapshot() {
+        return fromSnapshot;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public int getGroupAddressCount() {
+        return groupAddressCount;
+    }
+
+    /**
+     * Number of group addresses which are neither connected to a device in
+     * ETS nor configured in user configuration
+     *
+     * @return number of unconnected group addresses
+     */
+    public int getUnconnectedCount() {
+        return unconnectedCount;
+    }
+
+    /**
+     * Number of group addresses without DPT after applying the user
+     * configuration
+     *
+     * @return number of group addresses without DPT
+     */
+    public int getWithoutDptCount() {
+        return withoutDptCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LoadStatistics{");
+        for (LoadPhase phase : LoadPhase.values()) {
+            sb.append(phase).append("=").append(getPhaseTime(phase, TimeUnit.MILLISECONDS)).append("ms, ");
+        }
+        sb.append("bytesRead=").append(getTotalBytesRead());
+        sb.append(", manufacturerFilesParsed=").append(getManufacturerFilesParsed());
+        sb.append(", manufacturerFilesCached=").append(getManufacturerFilesCached());
+        sb.append(", fromSnapshot=").append(fromSnapshot);
+        sb.append(", devices=").append(deviceCount);
+        sb.append(", groupAddresses=").append(groupAddressCount);
+        sb.append(", unconnected=").append(unconnectedCount);
+        sb.append(", withoutDpt=").append(withoutDptCount);
+        return sb.append('}').toString();
+    }
+
+}
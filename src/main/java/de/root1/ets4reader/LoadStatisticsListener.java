@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+
+/**
+ * Receives the statistics of each read .knxproj file, f.i. to forward them
+ * to a metrics system. See
+ * {@link ReaderOptions#setStatisticsListener(LoadStatisticsListener)}.
+ *
+ * @author achristian
+ */
+public interface LoadStatisticsListener {
+
+    /**
+     * Called when a .knxproj file has been read successfully. Called on the
+     * thread which created the reader. Exceptions thrown are logged and don't
+     * fail the read.
+     *
+     * @param knxprojFile the read file
+     * @param statistics statistics of the read
+     */
+    void loadCompleted(File knxprojFile, LoadStatistics statistics);
+
+}
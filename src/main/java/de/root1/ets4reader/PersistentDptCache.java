@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the ComObjectRef -> DPT tables of manufacturer application files in
+ * a directory, so that they survive a restart. A table is stored per
+ * application ID and CRC-32 of the application file, f.i.
+ * "M-0083_A-0030-20-FCCB-1a2b3c4d.dpt".
+ * <p>
+ * Files are written to a temp file in the same directory first and then
+ * moved to their final name, so concurrent processes sharing the directory
+ * never see a partially written table.
+ * <p>
+ * File format (big endian, strings as modified UTF-8):
+ * <pre>
+ * int     magic "KPDT"
+ * short   version
+ * String  application ID
+ * long    CRC-32 of the application file
+ * int     number of distinct DPTs
+ * String  DPT  (repeated)
+ * int     number of ComObjectRefs
+ *   byte    1 if ID starts with application ID (and only the rest is stored), else 0
+ *   String  ComObjectRef-ID
+ *   int     index of DPT, -1 for none
+ * </pre>
+ *
+ * @author achristian
+ */
+class PersistentDptCache implements DptTableCache {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final int MAGIC = 0x4B504454; // KPDT
+    private static final short VERSION = 1;
+    private static final String SUFFIX = ".dpt";
+
+    private final File directory;
+
+    /**
+     *
+     * @param directory cache directory, created if not existing
+     * @throws IOException if directory cannot be created
+     */
+    PersistentDptCache(File directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+    }
+
+    private File getFile(String applicationId, long crc) {
+        return new File(directory, applicationId + "-" + Long.toHexString(crc) + SUFFIX);
+    }
+
+    /**
+     * Reads a cached table
+     *
+     * @param applicationId f.i. M-0083_A-0030-20-FCCB
+     * @param crc CRC-32 of the application file
+     * @return ComObjectRef -> DPT, or null if not cached
+     */
+    @Override
+    public Map<String, String> get(String applicationId, long crc) {
+        File file = getFile(applicationId, crc);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION
+                    || !in.readUTF().equals(applicationId) || in.readLong() != crc) {
+                log.warn("Ignoring invalid DPT cache file {}", file.getAbsolutePath());
+                return null;
+            }
+
+            String[] dpts = new String[in.readInt()];
+            for (int i = 0; i < dpts.length; i++) {
+                dpts[i] = in.readUTF();
+            }
+
+            int size = in.readInt();
+            Map<String, String> table = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                boolean prefixed = in.readByte() == 1;
+                String refId = in.readUTF();
+                if (prefixed) {
+                    refId = applicationId + refId;
+                }
+                int dptIndex = in.readInt();
+                table.put(refId, dptIndex == -1 ? null : dpts[dptIndex]);
+            }
+            log.debug("Read DPT cache file {}", file.getName());
+            return table;
+        } catch (FileNotFoundException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.warn("Error reading DPT cache file " + file.getAbsolutePath(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a table
+     *
+     * @param applicationId f.i. M-0083_A-0030-20-FCCB
+     * @param crc CRC-32 of the application file
+     * @param table ComObjectRef -> DPT
+     */
+    @Override
+    public void put(String applicationId, long crc, Map<String, String> table) {
+        File file = getFile(applicationId, crc);
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(directory.toPath(), applicationId, ".tmp");
+
+            Map<String, Integer> dptIndex = new HashMap<>();
+            List<String> dpts = new ArrayList<>();
+            int size = 0;
+            for (Map.Entry<String, String> entry : table.entrySet()) {
+                if (entry.getKey() == null) {
+                    continue;
+                }
+                size++;
+                String dpt = entry.getValue();
+                if (dpt != null && !dptIndex.containsKey(dpt)) {
+                    dptIndex.put(dpt, dpts.size());
+                    dpts.add(dpt);
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeUTF(applicationId);
+                out.writeLong(crc);
+                out.writeInt(dpts.size());
+                for (String dpt : dpts) {
+                    out.writeUTF(dpt);
+                }
+                out.writeInt(size);
+                for (Map.Entry<String, String> entry : table.entrySet()) {
+                    String refId = entry.getKey();
+                    if (refId == null) {
+                        continue;
+                    }
+                    if (refId.startsWith(applicationId)) {
+                        out.writeByte(1);
+                        out.writeUTF(refId.substring(applicationId.length()));
+                    } else {
+                        out.writeByte(0);
+                        out.writeUTF(refId);
+                    }
+                    out.writeInt(entry.getValue() == null ? -1 : dptIndex.get(entry.getValue()));
+                }
+            }
+
+            try {
+                Utils.moveAtomically(tmpFile, file.toPath());
+            } catch (FileAlreadyExistsException ex) {
+                // another process was faster and wrote the same table
+                Files.deleteIfExists(tmpFile);
+            }
+            log.debug("Wrote DPT cache file {}", file.getName());
+        } catch (IOException ex) {
+            log.warn("Error writing DPT cache file " + file.getAbsolutePath(), ex);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ex1) {
+                    log.warn("Cannot delete temp file " + tmpFile, ex1);
+                }
+            }
+        }
+    }
+
+}
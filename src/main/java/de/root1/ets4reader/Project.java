@@ -18,13 +18,19 @@
  */
 package de.root1.ets4reader;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
-import javax.xml.bind.DatatypeConverter;
+import java.util.concurrent.ForkJoinPool;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLStreamException;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -49,23 +55,118 @@ public class Project {
     private final Calendar lastModified;
     private final Calendar projectStart;
     private final List<Device> deviceList = new ArrayList<>();
-    private final List<GroupAddress> groupaddressList = new ArrayList<>();
+    private final List<GroupAddress> groupaddressList;
+
+    /**
+     * if group addresses are stored compact: same as groupaddressList
+     */
+    private final GroupAddressTable groupAddressTable;
+
+    /**
+     * GroupAddressRef-ID <-> connection to first device using the group address
+     */
+    private final Map<String, DeviceConnection> connectionIndex = new HashMap<>();
+
+    /**
+     * address <-> first group address with this address
+     */
+    private final Map<String, GroupAddress> addressIndex = new HashMap<>();
+
+    /**
+     * internal ID <-> group address, built on first lookup. Only published
+     * when complete, as lookups may come from several threads.
+     */
+    private volatile Map<String, GroupAddress> internalIdIndex;
+
+    /**
+     * name <-> first group address with this name, built on first lookup.
+     * Only published when complete.
+     */
+    private volatile Map<String, GroupAddress> nameIndex;
+
+    /**
+     * top level group ranges (main groups) of all installations
+     */
+    private final List<GroupRange> groupRanges = new ArrayList<>();
+
+    /**
+     * sorted group addresses for range and DPT queries, built on first query
+     */
+    private volatile GroupAddressIndex groupAddressIndex;
+
+    /**
+     * individual address <-> first device with this address
+     */
+    private final Map<String, Device> deviceIndex = new HashMap<>();
+
+    /**
+     * packed individual address <-> first device with this address
+     */
+    private final TopologyIndex topologyIndex = new TopologyIndex();
 
-    private final File projTmpFolder;
     private Namespace ns;
 
-    Project(File projFolder) throws IOException, JDOMException {
+    /**
+     *
+     * @param archive archive to read from
+     * @param projFolder name of the project folder, f.i. P-05FA
+     * @param options reader options
+     * @param symbols symbol table to canonicalize IDs with
+     * @throws IOException
+     * @throws JDOMException
+     */
+    Project(ProjectArchive archive, String projFolder, ReaderOptions options, SymbolTable symbols) throws IOException, JDOMException {
+        this(readProjectElement(archive, projFolder), options.isCompactGroupAddresses());
+        if (options.isStreamingParser()) {
+            readProjectDataStreaming(archive, projFolder, symbols);
+        } else {
+            readProjectData(archive, projFolder, symbols, options.getForkJoinPool());
+        }
+
+    }
+
+    /**
+     * Creates a project from its &lt;Project&gt; element in Project.xml,
+     * without devices and group addresses
+     *
+     * @param projectElement
+     * @param compactGroupAddresses whether to store group addresses in a
+     * {@link GroupAddressTable}
+     */
+    private Project(Element projectElement, boolean compactGroupAddresses) {
+        this(projectElement.getAttributeValue("Id"),
+                getProjectInformation(projectElement).getAttributeValue("Name"),
+                parseDateTimeOrUnknown(getProjectInformation(projectElement).getAttributeValue("LastModified")),
+                parseDateTimeOrUnknown(getProjectInformation(projectElement).getAttributeValue("ProjectStart")),
+                compactGroupAddresses);
+    }
 
-        projTmpFolder = projFolder;
+    /**
+     * Reads name, ID and dates of a project from Project.xml only. The data
+     * file is not read, devices and group addresses are not added.
+     *
+     * @param archive archive to read from
+     * @param projFolder name of the project folder, f.i. P-05FA
+     * @return project without devices and group addresses
+     * @throws IOException
+     * @throws JDOMException
+     */
+    static Project readInformation(ProjectArchive archive, String projFolder) throws IOException, JDOMException {
+        return new Project(readProjectElement(archive, projFolder), false);
+    }
+
+    private static Element readProjectElement(ProjectArchive archive, String projFolder) throws IOException, JDOMException {
         SAXBuilder builder = new SAXBuilder();
 
-        File projectFile = new File(projFolder, projectfile);
-        if (!projectFile.exists()) {
-            projectFile = new File(projFolder, projectfile.toLowerCase());
-            log.debug("Using lower case project file name");
+        String projectFile = getProjectFile(archive, projFolder);
+        if (!projectFile.endsWith(projectfile)) {
+            LoggerFactory.getLogger(Project.class).debug("Using lower case project file name");
         }
         
-        Document document = (Document) builder.build(projectFile);
+        Document document;
+        try (InputStream in = archive.open(projectFile)) {
+            document = (Document) builder.build(in);
+        }
         
         Element rootElement = document.getRootElement();
         Namespace ns = rootElement.getNamespace();
@@ -73,20 +174,11 @@ public class Project {
 //        for (Element element : rootElement.getChildren()) {
 //            log.debug(element);
 //        }
-        Element projectElement = rootElement.getChild("Project", ns);
-
-        internalID = projectElement.getAttributeValue("Id");
-
-        Element projInfoElement = projectElement.getChild("ProjectInformation", ns);
-        name = projInfoElement.getAttributeValue("Name");
-        String lastModifiedString = projInfoElement.getAttributeValue("LastModified");
-        String projectStartString = projInfoElement.getAttributeValue("ProjectStart");
-        Calendar unknown = Calendar.getInstance();
-        unknown.setTimeInMillis(0);
-        lastModified = lastModifiedString != null && !lastModifiedString.isEmpty() ? DatatypeConverter.parseDateTime(lastModifiedString) : unknown;
-        projectStart = projectStartString != null && !projectStartString.isEmpty() ? DatatypeConverter.parseDateTime(projectStartString) : unknown;
-        readProjectData();
+        return rootElement.getChild("Project", ns);
+    }
 
+    private static Element getProjectInformation(Element projectElement) {
+        return projectElement.getChild("ProjectInformation", projectElement.getNamespace());
     }
 
     /**
@@ -98,15 +190,198 @@ public class Project {
         return name;
     }
 
+    /**
+     * Restores a project without reading any files. Devices and group
+     * addresses have to be added.
+     *
+     * @param internalID project ID, f.i. P-05FA
+     * @param name project name
+     * @param lastModified
+     * @param projectStart
+     */
+    Project(String internalID, String name, Calendar lastModified, Calendar projectStart) {
+        this(internalID, name, lastModified, projectStart, false);
+    }
+
+    /**
+     * Restores a project without reading any files. Devices and group
+     * addresses have to be added.
+     *
+     * @param internalID project ID, f.i. P-05FA
+     * @param name project name
+     * @param lastModified
+     * @param projectStart
+     * @param compactGroupAddresses whether to store group addresses in a
+     * {@link GroupAddressTable}
+     */
+    Project(String internalID, String name, Calendar lastModified, Calendar projectStart, boolean compactGroupAddresses) {
+        this.internalID = internalID;
+        this.name = name;
+        this.lastModified = lastModified;
+        this.projectStart = projectStart;
+        groupAddressTable = compactGroupAddresses ? new GroupAddressTable() : null;
+        groupaddressList = groupAddressTable != null ? groupAddressTable : new ArrayList<GroupAddress>();
+    }
+
+    /**
+     * Path of the project file (Project.xml) in the archive
+     *
+     * @param archive
+     * @param projFolder name of the project folder, f.i. P-05FA
+     * @return path, f.i. P-05FA/Project.xml
+     */
+    static String getProjectFile(ProjectArchive archive, String projFolder) {
+        String projectFile = projFolder + "/" + projectfile;
+        if (!archive.exists(projectFile)) {
+            projectFile = projFolder + "/" + projectfile.toLowerCase();
+        }
+        return projectFile;
+    }
+
+    /**
+     * Path of the project data file (0.xml) in the archive
+     *
+     * @param projFolder name of the project folder, f.i. P-05FA
+     * @return path, f.i. P-05FA/0.xml
+     */
+    static String getDataFile(String projFolder) {
+        return projFolder + "/" + datafile;
+    }
+
+    /**
+     * Creates a copy of this project as it was before DPTs and user
+     * configuration have been applied. Devices are shared with the copy,
+     * group addresses are copied without DPT and state. Group addresses
+     * which only exist in user configuration are not copied.
+     *
+     * @return unresolved copy of this project
+     */
+    Project copy() {
+        Project copy = new Project(internalID, name, lastModified, projectStart, groupAddressTable != null);
+        for (Device device : deviceList) {
+            copy.addDevice(device);
+        }
+        for (GroupAddress ga : groupaddressList) {
+            if (!"USERCONFIG".equals(ga.getInternalId())) {
+                copy.addGroupAddress(ga.copy());
+            }
+        }
+        for (GroupRange groupRange : groupRanges) {
+            copy.addGroupRange(groupRange);
+        }
+        return copy;
+    }
+
+    /**
+     * Creates a copy of this project for a {@link ProjectSnapshot}. Group
+     * addresses are copied with their state, devices and group ranges are
+     * shared. All lookup indexes are built, so lookups don't change the copy
+     * and it can be read by several threads.
+     *
+     * @return complete copy of this project
+     */
+    Project frozenCopy() {
+        Project copy = new Project(internalID, name, (Calendar) lastModified.clone(), (Calendar) projectStart.clone(), false);
+        for (Device device : deviceList) {
+            copy.addDevice(device);
+        }
+        for (GroupAddress ga : groupaddressList) {
+            copy.addGroupAddress(ga.frozenCopy());
+        }
+        for (GroupRange groupRange : groupRanges) {
+            copy.addGroupRange(groupRange);
+        }
+        copy.getInternalIdIndex();
+        copy.getNameIndex();
+        copy.getGroupAddressIndex();
+        copy.trimToSize();
+        return copy;
+    }
+
+    /**
+     * Parses a xs:dateTime value, see {@link #parseDateTime(String)}
+     *
+     * @param dateTime value, may be null or empty
+     * @return calendar for given value, or time 0 (1970-01-01) if no value
+     * is given
+     */
+    private static Calendar parseDateTimeOrUnknown(String dateTime) {
+        if (dateTime == null || dateTime.isEmpty()) {
+            Calendar unknown = Calendar.getInstance();
+            unknown.setTimeInMillis(0);
+            return unknown;
+        }
+        return parseDateTime(dateTime);
+    }
+
+    /**
+     * Parses a xs:dateTime value like "2015-03-01T10:11:12.123Z"
+     *
+     * @param dateTime
+     * @return calendar for given value
+     */
+    private static Calendar parseDateTime(String dateTime) {
+        try {
+            return DatatypeFactory.newInstance().newXMLGregorianCalendar(dateTime).toGregorianCalendar();
+        } catch (DatatypeConfigurationException ex) {
+            throw new IllegalStateException("No XML datatype factory available", ex);
+        }
+    }
+
+    /**
+     * Project ID, f.i. P-05FA
+     *
+     * @return project ID
+     */
+    String getInternalId() {
+        return internalID;
+    }
+
+    /**
+     * Time of last modification as defined in ETS. If unknown, time is set to
+     * 0 (1970-01-01)
+     *
+     * @return time of last modification
+     */
+    public Calendar getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Project start as defined in ETS. If unknown, time is set to 0
+     * (1970-01-01)
+     *
+     * @return project start
+     */
+    public Calendar getProjectStart() {
+        return projectStart;
+    }
+
     @Override
     public String toString() {
         return "Project{" + "internalID=" + internalID + ", name=" + name + ", lastModified=" + lastModified.getTime() + ", projectStart=" + projectStart.getTime() + '}';
     }
 
-    private void readProjectData() throws JDOMException, IOException {
+    /**
+     * Reads devices, group addresses and group ranges of all installations.
+     * If a pool is given, topology and group addresses of each installation
+     * are read in parallel, but added in document order.
+     *
+     * @param archive
+     * @param projFolder
+     * @param symbols
+     * @param pool pool to read in parallel, null to read in the calling
+     * thread
+     * @throws JDOMException
+     * @throws IOException
+     */
+    private void readProjectData(ProjectArchive archive, String projFolder, final SymbolTable symbols, ForkJoinPool pool) throws JDOMException, IOException {
         SAXBuilder builder = new SAXBuilder();
 
-        Document document = (Document) builder.build(new File(projTmpFolder, datafile));
+        Document document;
+        try (InputStream in = archive.open(getDataFile(projFolder))) {
+            document = (Document) builder.build(in);
+        }
         Element rootElement = document.getRootElement();
         ns = rootElement.getNamespace();
 
@@ -117,15 +392,54 @@ public class Project {
 
             List<Element> installations = installationsElement.getChildren("Installation", ns);
 
+            if (pool != null) {
+                // per installation: a task for the topology, one for the group addresses
+                List<ReadTask<List<?>>> tasks = new ArrayList<>();
+                for (Element installationElement : installations) {
+                    final Element topologyElement = installationElement.getChild("Topology", ns);
+                    final Element groupaddressesElement = installationElement.getChild("GroupAddresses", ns);
+                    tasks.add(new ReadTask<List<?>>() {
+
+                        @Override
+                        List<?> read() {
+                            return readDevices(topologyElement, ns, symbols);
+                        }
+                    });
+                    tasks.add(new ReadTask<List<?>>() {
+
+                        @Override
+                        List<?> read() {
+                            return readGroupAdresses(groupaddressesElement, ns, symbols);
+                        }
+                    });
+                }
+                List<List<?>> results = ReadTask.invokeAll(pool, tasks);
+                for (int i = 0; i < installations.size(); i++) {
+                    for (Object device : results.get(2 * i)) {
+                        addDevice((Device) device);
+                    }
+                    for (Object ga : results.get(2 * i + 1)) {
+                        addGroupAddress((GroupAddress) ga);
+                    }
+                    addGroupRanges(installations.get(i).getChild("GroupAddresses", ns));
+                }
+                return;
+            }
+
             for (Element installationElement : installations) {
 
                 // read devices
                 Element topologyElement = installationElement.getChild("Topology", ns);
-                readDevices(topologyElement, ns);
+                for (Device device : readDevices(topologyElement, ns, symbols)) {
+                    addDevice(device);
+                }
 
                 // read groupaddresses
                 Element groupaddressesElement = installationElement.getChild("GroupAddresses", ns);
-                readGroupAdresses(groupaddressesElement, ns);
+                for (GroupAddress ga : readGroupAdresses(groupaddressesElement, ns, symbols)) {
+                    addGroupAddress(ga);
+                }
+                addGroupRanges(groupaddressesElement);
 
             }
 
@@ -133,8 +447,20 @@ public class Project {
 
     }
 
+    private void readProjectDataStreaming(ProjectArchive archive, String projFolder, SymbolTable symbols) throws JDOMException, IOException {
+        String dataFile = getDataFile(projFolder);
+        try (InputStream in = archive.open(dataFile)) {
+            new ProjectDataStreamReader(this, symbols).read(in, internalID);
+        } catch (XMLStreamException ex) {
+            throw new JDOMException("Error reading " + dataFile, ex);
+        }
+    }
+
     /**
-     * Get the group addresses used in this project, as defined in ETS
+     * Get the group addresses used in this project, as defined in ETS. If
+     * group addresses are stored compact (see
+     * {@link ReaderOptions#setCompactGroupAddresses(boolean)}), the list
+     * can't be modified and returns a new view object on each access.
      *
      * @return list of group addresses
      */
@@ -143,19 +469,218 @@ public class Project {
     }
 
     /**
-     * get a specific group address by given Group Address name string
+     * get a specific group address by given Group Address string
      *
-     * @param ga name of the group address as defined in ETS, f.i. "Livingroom
-     * Light"
-     * @return the group address for the given name or null if not found
+     * @param ga address of the group address, f.i. "1/1/100"
+     * @return the group address for the given address or null if not found
      */
     public GroupAddress getGroupAddress(String ga) {
-        for (GroupAddress groupaddress : groupaddressList) {
-            if (groupaddress.getAddress().equals(ga)) {
-                return groupaddress;
+        if (groupAddressTable != null) {
+            int row = groupAddressTable.find(ga);
+            return row == -1 ? null : groupAddressTable.get(row);
+        }
+        return addressIndex.get(ga);
+    }
+
+    /**
+     * get a specific group address by its ETS ID
+     *
+     * @param internalId ETS ID of the group address, f.i. P-05FA-0_GA-246
+     * @return the group address with the given ID or null if not found. Group
+     * addresses only defined in user configuration have no ETS ID.
+     */
+    public GroupAddress getGroupAddressByInternalId(String internalId) {
+        return getInternalIdIndex().get(internalId);
+    }
+
+    private Map<String, GroupAddress> getInternalIdIndex() {
+        Map<String, GroupAddress> index = internalIdIndex;
+        if (index == null) {
+            // built locally, concurrent first lookups just build it twice
+            index = new HashMap<>();
+            for (GroupAddress groupAddress : groupaddressList) {
+                String internalId = groupAddress.getInternalId();
+                if (internalId != null && !"USERCONFIG".equals(internalId) && !index.containsKey(internalId)) {
+                    index.put(internalId, groupAddress);
+                }
             }
+            internalIdIndex = index;
         }
-        return null;
+        return index;
+    }
+
+    /**
+     * get a specific group address by its name
+     *
+     * @param name name of the group address as defined in ETS or user
+     * configuration, f.i. "Livingroom Light"
+     * @return the first group address with the given name or null if not
+     * found
+     */
+    public GroupAddress getGroupAddressByName(String name) {
+        return getNameIndex().get(name);
+    }
+
+    private Map<String, GroupAddress> getNameIndex() {
+        Map<String, GroupAddress> index = nameIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (GroupAddress groupAddress : groupaddressList) {
+                String definedName = groupAddress.getDefinedName();
+                if (definedName != null && !index.containsKey(definedName)) {
+                    index.put(definedName, groupAddress);
+                }
+            }
+            nameIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the group ranges of this project, as defined in ETS. The main
+     * groups are returned, each containing its middle groups.
+     *
+     * @return unmodifiable list of group ranges, in document order
+     */
+    public List<GroupRange> getGroupRanges() {
+        return Collections.unmodifiableList(groupRanges);
+    }
+
+    /**
+     * Get all group addresses of this project, sorted by address. Group
+     * addresses with the same address keep the order of
+     * {@link #getGroupaddressList()}. Group addresses from user configuration
+     * which are not in the form main/middle/sub are returned last.
+     *
+     * @return unmodifiable list of group addresses
+     */
+    public List<GroupAddress> getSortedGroupAddresses() {
+        return getGroupAddressIndex().getSorted();
+    }
+
+    /**
+     * Get all group addresses of a main group, f.i. 3/*&#47;*
+     *
+     * @param main main group, 0..31
+     * @return unmodifiable list of group addresses, sorted by address
+     */
+    public List<GroupAddress> getGroupAddresses(int main) {
+        checkRange(main, 0x1F, "main group");
+        return getGroupAddressIndex().getRange(main << 11, main << 11 | 0x7FF);
+    }
+
+    /**
+     * Get all group addresses of a middle group, f.i. 3/2/*
+     *
+     * @param main main group, 0..31
+     * @param middle middle group, 0..7
+     * @return unmodifiable list of group addresses, sorted by address
+     */
+    public List<GroupAddress> getGroupAddresses(int main, int middle) {
+        checkRange(main, 0x1F, "main group");
+        checkRange(middle, 0x07, "middle group");
+        return getGroupAddressIndex().getRange(main << 11 | middle << 8, main << 11 | middle << 8 | 0xFF);
+    }
+
+    /**
+     * Get all group addresses within a group range
+     *
+     * @param groupRange group range, f.i. from {@link #getGroupRanges()}
+     * @return unmodifiable list of group addresses, sorted by address
+     */
+    public List<GroupAddress> getGroupAddresses(GroupRange groupRange) {
+        return getGroupAddressIndex().getRange(Math.max(groupRange.getRangeStart(), 0), Math.min(groupRange.getRangeEnd(), 0xFFFF));
+    }
+
+    /**
+     * Get all group addresses with the given DPT, f.i. 9.001
+     *
+     * @param mainType DPT main type, f.i. 9
+     * @param subType DPT sub type, f.i. 1
+     * @return unmodifiable list of group addresses, sorted by address
+     */
+    public List<GroupAddress> getGroupAddressesByDataPointType(int mainType, int subType) {
+        return getGroupAddressIndex().getByDataPointType(mainType, subType, subType);
+    }
+
+    /**
+     * Get all group addresses with the given DPT main type, f.i. 9.xxx
+     *
+     * @param mainType DPT main type, f.i. 9
+     * @return unmodifiable list of group addresses, sorted by sub type and
+     * address
+     */
+    public List<GroupAddress> getGroupAddressesByDataPointType(int mainType) {
+        return getGroupAddressIndex().getByDataPointType(mainType, 0, 0xFFFF);
+    }
+
+    /**
+     * Get all group addresses which are not connected to any device
+     *
+     * @return unmodifiable list of group addresses, sorted by address
+     */
+    public List<GroupAddress> getUnconnectedGroupAddresses() {
+        return getGroupAddressIndex().getUnconnected();
+    }
+
+    private GroupAddressIndex getGroupAddressIndex() {
+        GroupAddressIndex index = groupAddressIndex;
+        if (index == null) {
+            index = new GroupAddressIndex(groupaddressList);
+            groupAddressIndex = index;
+        }
+        return index;
+    }
+
+    private static void checkRange(int value, int max, String what) {
+        if (value < 0 || value > max) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + value);
+        }
+    }
+
+    /**
+     * get a specific device by its individual address
+     *
+     * @param address individual address with dot-notation, f.i. 1.1.100
+     * @return the first device with the given address or null if not found
+     */
+    public Device getDevice(String address) {
+        return deviceIndex.get(address);
+    }
+
+    /**
+     * get a specific device by its packed individual address, f.i. the
+     * source address of a received telegram
+     *
+     * @param individualAddress 16 bit individual address, 4 bit area, 4 bit
+     * line, 8 bit member, f.i. 0x1164 for 1.1.100
+     * @return the first device with the given address or null if not found
+     */
+    public Device getDevice(int individualAddress) {
+        return topologyIndex.get(individualAddress);
+    }
+
+    /**
+     * Returns the devices of an area
+     *
+     * @param area area, 0..15
+     * @return unmodifiable list of devices, in order of
+     * {@link #getDeviceList()}
+     */
+    public List<Device> getDevices(int area) {
+        return topologyIndex.getArea(area);
+    }
+
+    /**
+     * Returns the devices of a line, including those without member address
+     *
+     * @param area area, 0..15
+     * @param line line, 0..15
+     * @return unmodifiable list of devices, in order of
+     * {@link #getDeviceList()}
+     */
+    public List<Device> getDevices(int area, int line) {
+        return topologyIndex.getLine(area, line);
     }
 
     /**
@@ -177,8 +702,11 @@ public class Project {
      *
      * @param topologyElement
      * @param ns
+     * @param symbols
+     * @return devices, in document order
      */
-    private void readDevices(Element topologyElement, Namespace ns) {
+    private List<Device> readDevices(Element topologyElement, Namespace ns, SymbolTable symbols) {
+        List<Device> result = new ArrayList<>();
 
         List<Element> areas = topologyElement.getChildren("Area", ns);
         for (Element area : areas) {
@@ -194,15 +722,16 @@ public class Project {
                 List<Element> devices = line.getChildren("DeviceInstance", ns);
                 for (Element device : devices) {
 
-                    Device d = new Device(this, areaValue, lineValue, device);
+                    Device d = new Device(this, areaValue, lineValue, device, symbols);
                     log.debug("Found device: {}", d);
-                    deviceList.add(d);
+                    result.add(d);
 
                 }
 
             }
 
         }
+        return result;
 
     }
 
@@ -216,8 +745,11 @@ public class Project {
      * </pre> @param groupaddressesElement
      *
      * @param ns
+     * @param symbols
+     * @return group addresses, in the order they are to be added
      */
-    private void readGroupAdresses(Element groupaddressesElement, Namespace ns) {
+    private List<GroupAddress> readGroupAdresses(Element groupaddressesElement, Namespace ns, SymbolTable symbols) {
+        List<GroupAddress> result = new ArrayList<>();
 
         Stack<Element> stack = new Stack<>();
 
@@ -232,21 +764,147 @@ public class Project {
 
                 }
             } else if (element.getName().equals("GroupAddress")) {
-                GroupAddress ga = new GroupAddress(element);
+                GroupAddress ga = new GroupAddress(element, symbols);
                 log.debug("Found GroupAddress: {}", ga);
-                groupaddressList.add(ga);
+                result.add(ga);
             }
         }
+        return result;
 
     }
 
+    /**
+     * Adds the top level group ranges of an installation
+     *
+     * @param groupaddressesElement &lt;GroupAddresses&gt; element
+     */
+    private void addGroupRanges(Element groupaddressesElement) {
+        Element groupRangesElement = groupaddressesElement.getChild("GroupRanges", ns);
+        if (groupRangesElement != null) {
+            for (GroupRange groupRange : readGroupRanges(groupRangesElement, ns)) {
+                addGroupRange(groupRange);
+            }
+        }
+    }
+
+    /**
+     * Reads the nested &lt;GroupRange&gt; elements of an element
+     *
+     * @param parent
+     * @param ns
+     * @return group ranges, in document order
+     */
+    private List<GroupRange> readGroupRanges(Element parent, Namespace ns) {
+        List<GroupRange> ranges = new ArrayList<>();
+        for (Element rangeElement : parent.getChildren("GroupRange", ns)) {
+            GroupRange groupRange = createGroupRange(rangeElement.getAttributeValue("Name"),
+                    rangeElement.getAttributeValue("RangeStart"),
+                    rangeElement.getAttributeValue("RangeEnd"));
+            for (GroupRange child : readGroupRanges(rangeElement, ns)) {
+                groupRange.addGroupRange(child);
+            }
+            ranges.add(groupRange);
+        }
+        return ranges;
+    }
+
+    /**
+     * Creates a group range from the attributes of a &lt;GroupRange&gt;
+     * element. Missing boundaries cover all addresses.
+     *
+     * @param name
+     * @param rangeStart
+     * @param rangeEnd
+     * @return group range without nested ranges
+     */
+    static GroupRange createGroupRange(String name, String rangeStart, String rangeEnd) {
+        return new GroupRange(name,
+                rangeStart != null ? Integer.parseInt(rangeStart) : 0,
+                rangeEnd != null ? Integer.parseInt(rangeEnd) : 0xFFFF);
+    }
+
     Namespace getNamespace() {
         return ns;
     }
 
+    /**
+     * Adds a device and indexes its connectors. The device must not be
+     * changed afterwards.
+     *
+     * @param device
+     */
+    void addDevice(Device device) {
+        deviceList.add(device);
+        if (!deviceIndex.containsKey(device.getAddress())) {
+            deviceIndex.put(device.getAddress(), device);
+        }
+        topologyIndex.add(device);
+
+        DeviceConnection.index(device, connectionIndex);
+    }
+
+    /**
+     * Gets the connection of a group address to the first device using it
+     *
+     * @param groupAddressRefId GroupAddressRef-ID, f.i. P-05FA-0_GA-246
+     * @return connection or null, if group address is not connected to a
+     * device
+     */
+    DeviceConnection getDeviceConnection(String groupAddressRefId) {
+        return connectionIndex.get(groupAddressRefId);
+    }
+
+    /**
+     * Adds a group address and updates the lookup indexes. If group addresses
+     * are stored compact, the state of the given group address is copied, so
+     * later changes have to be done on the group address returned by this
+     * project.
+     *
+     * @param groupAddress
+     */
     void addGroupAddress(GroupAddress groupAddress) {
         groupaddressList.add(groupAddress);
+        groupAddressIndex = null;
+        // a compact table has its own address index
+        if (groupAddressTable == null && !addressIndex.containsKey(groupAddress.getAddress())) {
+            // first group address in list wins, as with a linear search
+            addressIndex.put(groupAddress.getAddress(), groupAddress);
+        }
+        // rebuilt on next lookup, published indexes are never changed
+        internalIdIndex = null;
+        nameIndex = null;
+    }
+
+    /**
+     * Adds a top level group range
+     *
+     * @param groupRange
+     */
+    void addGroupRange(GroupRange groupRange) {
+        groupRanges.add(groupRange);
+    }
 
+    /**
+     * Renames a group address of this project and updates the name index
+     *
+     * @param groupAddress
+     * @param name new name
+     */
+    void setGroupAddressName(GroupAddress groupAddress, String name) {
+        groupAddress.setName(name);
+        // rebuilt on next lookup, as the old name may map to another GA now
+        nameIndex = null;
+    }
+
+    /**
+     * Releases unused capacity of compact group address storage and the
+     * topology index
+     */
+    void trimToSize() {
+        if (groupAddressTable != null) {
+            groupAddressTable.trimToSize();
+        }
+        topologyIndex.trimToSize();
     }
 
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Read access to the content of a .knxproj file. Entries are addressed with
+ * their path inside the archive, f.i. "P-05FA/0.xml"
+ *
+ * @author achristian
+ */
+interface ProjectArchive extends Closeable {
+
+    /**
+     * Names of the top level folders, f.i. "P-05FA" or "M-0083"
+     *
+     * @return list of folder names
+     */
+    List<String> getFolders();
+
+    /**
+     * Checks whether the given entry is available
+     *
+     * @param path entry path, f.i. "P-05FA/Project.xml"
+     * @return true, if entry exists
+     */
+    boolean exists(String path);
+
+    /**
+     * Opens the given entry for reading. Caller has to close the stream.
+     *
+     * @param path entry path, f.i. "M-0083/M-0083_A-0030-20-FCCB.xml"
+     * @return stream with the entry's content
+     * @throws IOException if entry does not exist or cannot be read
+     */
+    InputStream open(String path) throws IOException;
+
+    /**
+     * CRC-32 of the entry's content, as stored in the .knxproj zip file
+     *
+     * @param path entry path
+     * @return CRC-32 or -1 if not known
+     */
+    long getCrc(String path);
+
+    /**
+     * Uncompressed size of the entry
+     *
+     * @param path entry path
+     * @return size in bytes or -1 if not known
+     */
+    long getSize(String path);
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Differences between the projects of two reads of a .knxproj file, see
+ * {@link ProjectChangeListener}. Group addresses and devices are matched by
+ * their address over all projects of the file.
+ *
+ * @author achristian
+ */
+public class ProjectChangeEvent {
+
+    private final File knxprojFile;
+    private final KnxProjReader previousReader;
+    private final KnxProjReader reader;
+
+    private final List<GroupAddress> addedGroupAddresses = new ArrayList<>();
+    private final List<GroupAddress> removedGroupAddresses = new ArrayList<>();
+    private final List<GroupAddress> changedGroupAddresses = new ArrayList<>();
+    private final List<Device> addedDevices = new ArrayList<>();
+    private final List<Device> removedDevices = new ArrayList<>();
+
+    ProjectChangeEvent(File knxprojFile, KnxProjReader previousReader, KnxProjReader reader) {
+        this.knxprojFile = knxprojFile;
+        this.previousReader = previousReader;
+        this.reader = reader;
+
+        Map<String, GroupAddress> previousGroupAddresses = new LinkedHashMap<>();
+        Map<String, Device> previousDevices = new LinkedHashMap<>();
+        for (Project project : previousReader.getProjects()) {
+            for (GroupAddress ga : project.getGroupaddressList()) {
+                if (!previousGroupAddresses.containsKey(ga.getAddress())) {
+                    previousGroupAddresses.put(ga.getAddress(), ga);
+                }
+            }
+            for (Device device : project.getDeviceList()) {
+                if (!previousDevices.containsKey(device.getAddress())) {
+                    previousDevices.put(device.getAddress(), device);
+                }
+            }
+        }
+
+        // only the first group address or device of an address counts, as before
+        Set<String> seen = new HashSet<>();
+        for (Project project : reader.getProjects()) {
+            for (GroupAddress ga : project.getGroupaddressList()) {
+                if (!seen.add(ga.getAddress())) {
+                    continue;
+                }
+                GroupAddress previous = previousGroupAddresses.remove(ga.getAddress());
+                if (previous == null) {
+                    addedGroupAddresses.add(ga);
+                } else if (previous.getMainType() != ga.getMainType() || previous.getSubType() != ga.getSubType()) {
+                    changedGroupAddresses.add(ga);
+                }
+            }
+        }
+        seen.clear();
+        for (Project project : reader.getProjects()) {
+            for (Device device : project.getDeviceList()) {
+                if (seen.add(device.getAddress()) && previousDevices.remove(device.getAddress()) == null) {
+                    addedDevices.add(device);
+                }
+            }
+        }
+        removedGroupAddresses.addAll(previousGroupAddresses.values());
+        removedDevices.addAll(previousDevices.values());
+    }
+
+    /**
+     * The watched file
+     *
+     * @return .knxproj file
+     */
+    public File getFile() {
+        return knxprojFile;
+    }
+
+    /**
+     * Reader of the previous read, no longer active
+     *
+     * @return previous reader
+     */
+    public KnxProjReader getPreviousReader() {
+        return previousReader;
+    }
+
+    /**
+     * Reader of the new read, active when the event is delivered
+     *
+     * @return new reader
+     */
+    public KnxProjReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Group addresses which have not been there before
+     *
+     * @return group addresses of the new reader
+     */
+    public List<GroupAddress> getAddedGroupAddresses() {
+        return Collections.unmodifiableList(addedGroupAddresses);
+    }
+
+    /**
+     * Group addresses which are gone
+     *
+     * @return group addresses of the previous reader
+     */
+    public List<GroupAddress> getRemovedGroupAddresses() {
+        return Collections.unmodifiableList(removedGroupAddresses);
+    }
+
+    /**
+     * Group addresses with a different DPT than before, f.i. because the
+     * DPT has been set in the user configuration
+     *
+     * @return group addresses of the new reader
+     */
+    public List<GroupAddress> getChangedGroupAddresses() {
+        return Collections.unmodifiableList(changedGroupAddresses);
+    }
+
+    /**
+     * Devices which have not been there before
+     *
+     * @return devices of the new reader
+     */
+    public List<Device> getAddedDevices() {
+        return Collections.unmodifiableList(addedDevices);
+    }
+
+    /**
+     * Devices which are gone
+     *
+     * @return devices of the previous reader
+     */
+    public List<Device> getRemovedDevices() {
+        return Collections.unmodifiableList(removedDevices);
+    }
+
+    /**
+     * Whether neither group addresses nor devices have been added, removed
+     * or changed. Names and other details might have changed nevertheless.
+     *
+     * @return true, if no differences have been found
+     */
+    public boolean isEmpty() {
+        return addedGroupAddresses.isEmpty() && removedGroupAddresses.isEmpty() && changedGroupAddresses.isEmpty()
+                && addedDevices.isEmpty() && removedDevices.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectChangeEvent{" + "file=" + knxprojFile.getName()
+                + ", addedGroupAddresses=" + addedGroupAddresses.size()
+                + ", removedGroupAddresses=" + removedGroupAddresses.size()
+                + ", changedGroupAddresses=" + changedGroupAddresses.size()
+                + ", addedDevices=" + addedDevices.size()
+                + ", removedDevices=" + removedDevices.size() + '}';
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+
+/**
+ * Receives the results of reloading a watched .knxproj file. See
+ * {@link KnxProjWatcher#addChangeListener(ProjectChangeListener)}.
+ *
+ * @author achristian
+ */
+public interface ProjectChangeListener {
+
+    /**
+     * Called after a changed .knxproj file or user configuration has been
+     * read again and the new projects are active. Called on the watcher's
+     * thread. Exceptions thrown are logged.
+     *
+     * @param event differences between the previous and the new projects
+     */
+    void projectChanged(ProjectChangeEvent event);
+
+    /**
+     * Called if reading a changed .knxproj file failed, f.i. because it is
+     * still being written. The previous projects stay active, the file is
+     * read again on its next change. Called on the watcher's thread.
+     *
+     * @param knxprojFile the watched file
+     * @param error the exception reading the file failed with
+     */
+    void reloadFailed(File knxprojFile, Exception error);
+
+}
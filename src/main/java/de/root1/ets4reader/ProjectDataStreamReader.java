@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jdom2.JDOMException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads devices and group addresses of a project's data file (P-xxxx/0.xml)
+ * in a single forward pass with a StAX stream reader. Other than with JDOM, no
+ * document is built in memory, only the resulting devices and group addresses.
+ * These are passed to a {@link Handler} as soon as they have been read.
+ * <pre>
+ * KNX
+ *   Project
+ *     Installations
+ *       Installation
+ *         Topology
+ *           Area
+ *             Line
+ *               DeviceInstance
+ *                 ComObjectInstanceRefs
+ *                   ComObjectInstanceRef
+ *                     Connectors
+ *                       Send/Receive
+ *         GroupAddresses
+ *           GroupRanges
+ *             GroupRange
+ *               GroupRange
+ *                 GroupAddress
+ * </pre>
+ *
+ * @author achristian
+ */
+class ProjectDataStreamReader {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Receives devices and group addresses as soon as they have been read
+     */
+    interface Handler {
+
+        void device(Device device) throws IOException, JDOMException;
+
+        void groupAddress(GroupAddress groupAddress) throws IOException, JDOMException;
+
+        /**
+         * Called for top level group ranges, after all nested ranges have
+         * been added
+         *
+         * @param groupRange
+         */
+        void groupRange(GroupRange groupRange);
+    }
+
+    private final Handler handler;
+    private final SymbolTable symbols;
+
+    /**
+     * whether to pass the group addresses of an installation in reverse
+     * document order, as the JDOM based reader finds them
+     */
+    private final boolean reverseGroupAddresses;
+
+    /**
+     * namespace of the root element
+     */
+    private String ns;
+
+    /**
+     *
+     * @param project project which receives the devices and group addresses
+     * @param symbols symbol table to canonicalize IDs with
+     */
+    ProjectDataStreamReader(final Project project, SymbolTable symbols) {
+        this(new Handler() {
+
+            @Override
+            public void device(Device device) {
+                project.addDevice(device);
+            }
+
+            @Override
+            public void groupAddress(GroupAddress groupAddress) {
+                project.addGroupAddress(groupAddress);
+            }
+
+            @Override
+            public void groupRange(GroupRange groupRange) {
+                project.addGroupRange(groupRange);
+            }
+        }, symbols, true);
+    }
+
+    /**
+     *
+     * @param handler handler which receives the devices and group addresses
+     * @param symbols symbol table to canonicalize IDs with
+     * @param reverseGroupAddresses true to pass the group addresses of an
+     * installation in reverse document order, after all of them have been
+     * read. False to pass each group address immediately, in document order.
+     */
+    ProjectDataStreamReader(Handler handler, SymbolTable symbols, boolean reverseGroupAddresses) {
+        this.handler = handler;
+        this.symbols = symbols;
+        this.reverseGroupAddresses = reverseGroupAddresses;
+    }
+
+    /**
+     * Reads the data file
+     *
+     * @param in stream of 0.xml
+     * @param projectId ID of the project, f.i. P-05FA. If the file belongs to
+     * another project, nothing is read.
+     * @throws XMLStreamException
+     * @throws IOException if the handler fails
+     * @throws JDOMException if the handler fails
+     */
+    void read(InputStream in, String projectId) throws XMLStreamException, IOException, JDOMException {
+        XMLStreamReader reader = Utils.createXMLStreamReader(in);
+        try {
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                return;
+            }
+            ns = Utils.namespaceOf(reader);
+
+            while (Utils.nextChild(reader)) {
+                if (isElement(reader, "Project")) {
+                    if (projectId.equals(reader.getAttributeValue(null, "Id"))) {
+                        readProject(reader);
+                    }
+                    // only the first project is of interest
+                    return;
+                }
+                Utils.skip(reader);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void readProject(XMLStreamReader reader) throws XMLStreamException, IOException, JDOMException {
+        while (Utils.nextChild(reader)) {
+            if (isElement(reader, "Installations")) {
+                while (Utils.nextChild(reader)) {
+                    if (isElement(reader, "Installation")) {
+                        readInstallation(reader);
+                    } else {
+                        Utils.skip(reader);
+                    }
+                }
+                // only the first <Installations> is of interest
+                return;
+            }
+            Utils.skip(reader);
+        }
+    }
+
+    private void readInstallation(XMLStreamReader reader) throws XMLStreamException, IOException, JDOMException {
+        boolean topologyDone = false;
+        boolean groupAddressesDone = false;
+        List<GroupAddress> groupAddresses = reverseGroupAddresses ? new ArrayList<GroupAddress>() : null;
+
+        while (Utils.nextChild(reader)) {
+            if (!topologyDone && isElement(reader, "Topology")) {
+                readTopology(reader);
+                topologyDone = true;
+            } else if (!groupAddressesDone && isElement(reader, "GroupAddresses")) {
+                readGroupAddressTree(reader, groupAddresses, null);
+                groupAddressesDone = true;
+            } else {
+                Utils.skip(reader);
+            }
+        }
+
+        if (groupAddresses == null) {
+            return;
+        }
+        // The JDOM based reader walks the group range tree with a stack and
+        // therefore finds the group addresses in reverse document order. Keep
+        // that order, so that both readers give the same result.
+        for (int i = groupAddresses.size() - 1; i >= 0; i--) {
+            GroupAddress ga = groupAddresses.get(i);
+            log.debug("Found GroupAddress: {}", ga);
+            handler.groupAddress(ga);
+        }
+    }
+
+    private void readTopology(XMLStreamReader reader) throws XMLStreamException, IOException, JDOMException {
+        while (Utils.nextChild(reader)) {
+            if (isElement(reader, "Area")) {
+                int areaValue = Integer.parseInt(reader.getAttributeValue(null, "Address"));
+
+                while (Utils.nextChild(reader)) {
+                    if (isElement(reader, "Line")) {
+                        readLine(reader, areaValue);
+                    } else {
+                        Utils.skip(reader);
+                    }
+                }
+            } else {
+                Utils.skip(reader);
+            }
+        }
+    }
+
+    private void readLine(XMLStreamReader reader, int areaValue) throws XMLStreamException, IOException, JDOMException {
+        int lineValue = Integer.parseInt(reader.getAttributeValue(null, "Address"));
+
+        while (Utils.nextChild(reader)) {
+            if (isElement(reader, "DeviceInstance")) {
+                Device d = new Device(areaValue, lineValue,
+                        reader.getAttributeValue(null, "Address"),
+                        reader.getAttributeValue(null, "Name"),
+                        reader.getAttributeValue(null, "ProductRefId"));
+                readDeviceInstance(reader, d);
+                log.debug("Found device: {}", d);
+                handler.device(d);
+            } else {
+                Utils.skip(reader);
+            }
+        }
+    }
+
+    private void readDeviceInstance(XMLStreamReader reader, Device device) throws XMLStreamException {
+        boolean comObjectInstanceRefsDone = false;
+        while (Utils.nextChild(reader)) {
+            if (comObjectInstanceRefsDone || !isElement(reader, "ComObjectInstanceRefs")) {
+                Utils.skip(reader);
+                continue;
+            }
+            comObjectInstanceRefsDone = true;
+
+            // iterate over <ComObjectInstanceRefs> childs
+            while (Utils.nextChild(reader)) {
+                String refId = symbols.intern(reader.getAttributeValue(null, "RefId"));
+                device.addComObjectInstanceRef(refId, symbols.intern(reader.getAttributeValue(null, "DatapointType")));
+
+                boolean connectorsDone = false;
+                while (Utils.nextChild(reader)) {
+                    if (connectorsDone || !isElement(reader, "Connectors")) {
+                        Utils.skip(reader);
+                        continue;
+                    }
+                    connectorsDone = true;
+
+                    // <Send> and <Receive>
+                    while (Utils.nextChild(reader)) {
+                        device.addConnector(refId, symbols.intern(reader.getAttributeValue(null, "GroupAddressRefId")));
+                        Utils.skip(reader);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects all &lt;GroupAddress&gt; leaf elements below the current
+     * element, in document order. &lt;GroupRange&gt; elements are added to
+     * their parent range, or passed to the handler if on top level.
+     *
+     * @param reader reader, positioned on the start of an element
+     * @param groupAddresses list to add the found group addresses to, null to
+     * pass them to the handler immediately
+     * @param parentRange group range containing the current element, null if
+     * none
+     * @throws XMLStreamException
+     * @throws IOException if the handler fails
+     * @throws JDOMException if the handler fails
+     */
+    private void readGroupAddressTree(XMLStreamReader reader, List<GroupAddress> groupAddresses, GroupRange parentRange) throws XMLStreamException, IOException, JDOMException {
+        boolean isGroupAddress = reader.getLocalName().equals("GroupAddress");
+        GroupRange groupRange = null;
+        if (isElement(reader, "GroupRange")) {
+            groupRange = Project.createGroupRange(reader.getAttributeValue(null, "Name"),
+                    reader.getAttributeValue(null, "RangeStart"),
+                    reader.getAttributeValue(null, "RangeEnd"));
+        }
+        String id = null;
+        String address = null;
+        String name = null;
+        if (isGroupAddress) {
+            id = symbols.intern(reader.getAttributeValue(null, "Id"));
+            address = reader.getAttributeValue(null, "Address");
+            name = reader.getAttributeValue(null, "Name");
+        }
+
+        boolean hasChildren = false;
+        while (Utils.nextChild(reader)) {
+            hasChildren = true;
+            readGroupAddressTree(reader, groupAddresses, groupRange != null ? groupRange : parentRange);
+        }
+
+        if (groupRange != null) {
+            if (parentRange != null) {
+                parentRange.addGroupRange(groupRange);
+            } else {
+                handler.groupRange(groupRange);
+            }
+        }
+
+        if (isGroupAddress && !hasChildren) {
+            GroupAddress ga = new GroupAddress(id, Integer.parseInt(address), name);
+            if (groupAddresses != null) {
+                groupAddresses.add(ga);
+            } else {
+                log.debug("Found GroupAddress: {}", ga);
+                handler.groupAddress(ga);
+            }
+        }
+    }
+
+    private boolean isElement(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && ns.equals(Utils.namespaceOf(reader));
+    }
+
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Base class of exporters, which write projects, devices and resolved group
+ * addresses to a stream. Records are encoded directly into an internal
+ * buffer, without creating intermediate strings, and the buffer is written
+ * when full.
+ * <p>
+ * Read projects are exported with {@link #export(List)}. As exporters are
+ * {@link ProjectVisitor}s, they can also be passed to
+ * {@link KnxProjReader#visit(java.io.File, ReaderOptions, ProjectVisitor)},
+ * which writes each record as soon as it has been read. Visitor methods throw
+ * an {@link IllegalStateException} with the {@link IOException} as cause if
+ * writing fails, which stops reading.
+ * <p>
+ * Exporters are not thread safe. {@link #close()} has to be called to write
+ * the end of the export.
+ *
+ * @author achristian
+ */
+public abstract class ProjectExporter implements ProjectVisitor, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    private boolean started;
+    private boolean closed;
+
+    /**
+     *
+     * @param out stream to write to, closed by {@link #close()}
+     */
+    ProjectExporter(OutputStream out) {
+        this.out = out;
+        this.channel = null;
+    }
+
+    /**
+     *
+     * @param channel channel to write to, closed by {@link #close()}
+     */
+    ProjectExporter(WritableByteChannel channel) {
+        this.out = null;
+        this.channel = channel;
+    }
+
+    /**
+     * Writes all devices and group addresses of the given projects
+     *
+     * @param projects projects, f.i. from {@link KnxProjReader#getProjects()}
+     * @throws IOException
+     */
+    public void export(List<Project> projects) throws IOException {
+        for (Project project : projects) {
+            export(project);
+        }
+    }
+
+    /**
+     * Writes the project and all its devices and group addresses
+     *
+     * @param project
+     * @throws IOException
+     */
+    public void export(Project project) throws IOException {
+        start();
+        writeProject(project);
+        for (Device device : project.getDeviceList()) {
+            writeDevice(project, device);
+        }
+        for (GroupAddress groupAddress : project.getGroupaddressList()) {
+            writeGroupAddress(project, groupAddress);
+        }
+    }
+
+    @Override
+    public void onProject(Project project) {
+        try {
+            start();
+            writeProject(project);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot export project " + project.getName(), ex);
+        }
+    }
+
+    @Override
+    public void onDevice(Project project, Device device) {
+        try {
+            writeDevice(project, device);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot export device " + device.getAddress(), ex);
+        }
+    }
+
+    @Override
+    public void onGroupAddress(Project project, GroupAddress groupAddress) {
+        // written when resolved
+    }
+
+    @Override
+    public void onDptResolved(Project project, GroupAddress groupAddress) {
+        try {
+            writeGroupAddress(project, groupAddress);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot export group address " + groupAddress.getAddress(), ex);
+        }
+    }
+
+    /**
+     * Writes buffered records to the stream
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        drain();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the end of the export and closes the stream
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            start();
+            writeEnd();
+            drain();
+        } finally {
+            if (out != null) {
+                out.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            started = true;
+            writeStart();
+        }
+    }
+
+    /**
+     * Writes the start of the export, f.i. a header
+     *
+     * @throws IOException
+     */
+    abstract void writeStart() throws IOException;
+
+    abstract void writeProject(Project project) throws IOException;
+
+    abstract void writeDevice(Project project, Device device) throws IOException;
+
+    /**
+     * Writes a group address with its resolved DPT
+     *
+     * @param project
+     * @param groupAddress
+     * @throws IOException
+     */
+    abstract void writeGroupAddress(Project project, GroupAddress groupAddress) throws IOException;
+
+    /**
+     * Writes the end of the export
+     *
+     * @throws IOException
+     */
+    abstract void writeEnd() throws IOException;
+
+    final void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    final void writeShort(int value) throws IOException {
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    final void writeInt(int value) throws IOException {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    final void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * Writes a string containing ASCII characters only, one byte per char
+     *
+     * @param ascii
+     * @throws IOException
+     */
+    final void writeAscii(String ascii) throws IOException {
+        int length = ascii.length();
+        if (!reserve(length)) {
+            for (int i = 0; i < length; i++) {
+                writeByte(ascii.charAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    /**
+     * Writes the decimal text of a number
+     *
+     * @param value
+     * @throws IOException
+     */
+    final void writeDecimal(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value));
+                return;
+            }
+            writeByte('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            writeByte('0' + (int) (value / divisor % 10));
+        }
+    }
+
+    /**
+     * Writes the DPT of a group address like "1.001"
+     *
+     * @param groupAddress group address with specified DPT
+     * @throws IOException
+     */
+    final void writeDataPointType(GroupAddress groupAddress) throws IOException {
+        writeDecimal(groupAddress.getMainType());
+        writeByte('.');
+        int subType = groupAddress.getSubType();
+        if (subType >= 0 && subType < 100) {
+            writeByte('0');
+            if (subType < 10) {
+                writeByte('0');
+            }
+        }
+        writeDecimal(subType);
+    }
+
+    /**
+     * Writes a string UTF-8 encoded
+     *
+     * @param string
+     * @throws IOException
+     */
+    final void writeUtf8(String string) throws IOException {
+        int length = string.length();
+        int i = 0;
+        if (reserve(length)) {
+            // copy the ASCII prefix, usually the whole string, without checks
+            for (char c; i < length && (c = string.charAt(i)) < 0x80; i++) {
+                buffer[position++] = (byte) c;
+            }
+        }
+        for (; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                writeByte(c);
+            } else {
+                i = writeNonAscii(string, i);
+            }
+        }
+    }
+
+    /**
+     * Writes a non ASCII character UTF-8 encoded. Unpaired surrogates are
+     * written as '?'.
+     *
+     * @param string
+     * @param index index of the character
+     * @return index of the last character written, which is the low
+     * surrogate for supplementary characters
+     * @throws IOException
+     */
+    final int writeNonAscii(String string, int index) throws IOException {
+        char c = string.charAt(index);
+        if (c < 0x800) {
+            writeByte(0xC0 | c >>> 6);
+            writeByte(0x80 | c & 0x3F);
+        } else if (!Character.isSurrogate(c)) {
+            writeByte(0xE0 | c >>> 12);
+            writeByte(0x80 | c >>> 6 & 0x3F);
+            writeByte(0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && index + 1 < string.length() && Character.isLowSurrogate(string.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, string.charAt(index + 1));
+            writeByte(0xF0 | codePoint >>> 18);
+            writeByte(0x80 | codePoint >>> 12 & 0x3F);
+            writeByte(0x80 | codePoint >>> 6 & 0x3F);
+            writeByte(0x80 | codePoint & 0x3F);
+            return index + 1;
+        } else {
+            writeByte('?');
+        }
+        return index;
+    }
+
+    /**
+     * Number of bytes of a string when UTF-8 encoded by
+     * {@link #writeUtf8(String)}
+     *
+     * @param string
+     * @return length in bytes
+     */
+    static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Makes room for the given number of bytes in the buffer
+     *
+     * @param bytes
+     * @return false if the bytes don't fit into the buffer at all
+     * @throws IOException
+     */
+    private boolean reserve(int bytes) throws IOException {
+        if (bytes > buffer.length - position) {
+            drain();
+        }
+        return bytes <= buffer.length;
+    }
+
+    private void drain() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        if (out != null) {
+            out.write(buffer, 0, position);
+        } else {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, position);
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        }
+        position = 0;
+    }
+
+}
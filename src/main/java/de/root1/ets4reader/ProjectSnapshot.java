@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of a read {@link Project}, which can be shared by any number
+ * of threads without locking. Group addresses are copied with their state,
+ * all lookup indexes are built in advance, and all lists are unmodifiable.
+ * Unlike a project, a snapshot doesn't change after it has been created,
+ * neither by lookups nor by re-reading the .knxproj file.
+ * <p>
+ * Snapshots are safely published by their final fields: a thread which sees
+ * a snapshot, f.i. through an
+ * {@link java.util.concurrent.atomic.AtomicReference} which is replaced after
+ * a re-read, sees it completely. See {@link KnxProjReader#getSnapshots()} and
+ * {@link KnxProjWatcher#getSnapshots()}.
+ *
+ * @author achristian
+ */
+public final class ProjectSnapshot {
+
+    private final Project project;
+    private final List<GroupAddress> groupAddresses;
+    private final List<Device> devices;
+
+    private ProjectSnapshot(Project project) {
+        this.project = project;
+        groupAddresses = Collections.unmodifiableList(project.getGroupaddressList());
+        devices = Collections.unmodifiableList(project.getDeviceList());
+    }
+
+    /**
+     * Creates a snapshot of a project. The project must not be changed
+     * meanwhile, f.i. by the reader still reading it.
+     *
+     * @param project a completely read project
+     * @return snapshot of the project
+     */
+    public static ProjectSnapshot of(Project project) {
+        return new ProjectSnapshot(project.frozenCopy());
+    }
+
+    /**
+     * @return project name as defined in ETS
+     * @see Project#getName()
+     */
+    public String getName() {
+        return project.getName();
+    }
+
+    /**
+     * @return copy of the time of last modification
+     * @see Project#getLastModified()
+     */
+    public Calendar getLastModified() {
+        return (Calendar) project.getLastModified().clone();
+    }
+
+    /**
+     * @return copy of the project start
+     * @see Project#getProjectStart()
+     */
+    public Calendar getProjectStart() {
+        return (Calendar) project.getProjectStart().clone();
+    }
+
+    /**
+     * @return unmodifiable list of group addresses
+     * @see Project#getGroupaddressList()
+     */
+    public List<GroupAddress> getGroupaddressList() {
+        return groupAddresses;
+    }
+
+    /**
+     * @param ga address of the group address, f.i. "1/1/100"
+     * @return the group address for the given address or null if not found
+     * @see Project#getGroupAddress(String)
+     */
+    public GroupAddress getGroupAddress(String ga) {
+        return project.getGroupAddress(ga);
+    }
+
+    /**
+     * @param internalId ETS ID of the group address, f.i. P-05FA-0_GA-246
+     * @return the group address with the given ID or null if not found
+     * @see Project#getGroupAddressByInternalId(String)
+     */
+    public GroupAddress getGroupAddressByInternalId(String internalId) {
+        return project.getGroupAddressByInternalId(internalId);
+    }
+
+    /**
+     * @param name name of the group address, f.i. "Livingroom Light"
+     * @return the first group address with the given name or null if not
+     * found
+     * @see Project#getGroupAddressByName(String)
+     */
+    public GroupAddress getGroupAddressByName(String name) {
+        return project.getGroupAddressByName(name);
+    }
+
+    /**
+     * @return unmodifiable list of group ranges, in document order
+     * @see Project#getGroupRanges()
+     */
+    public List<GroupRange> getGroupRanges() {
+        return project.getGroupRanges();
+    }
+
+    /**
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getSortedGroupAddresses()
+     */
+    public List<GroupAddress> getSortedGroupAddresses() {
+        return project.getSortedGroupAddresses();
+    }
+
+    /**
+     * @param main main group, 0..31
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getGroupAddresses(int)
+     */
+    public List<GroupAddress> getGroupAddresses(int main) {
+        return project.getGroupAddresses(main);
+    }
+
+    /**
+     * @param main main group, 0..31
+     * @param middle middle group, 0..7
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getGroupAddresses(int, int)
+     */
+    public List<GroupAddress> getGroupAddresses(int main, int middle) {
+        return project.getGroupAddresses(main, middle);
+    }
+
+    /**
+     * @param groupRange group range, f.i. from {@link #getGroupRanges()}
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getGroupAddresses(GroupRange)
+     */
+    public List<GroupAddress> getGroupAddresses(GroupRange groupRange) {
+        return project.getGroupAddresses(groupRange);
+    }
+
+    /**
+     * @param mainType DPT main type, f.i. 9
+     * @param subType DPT sub type, f.i. 1
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getGroupAddressesByDataPointType(int, int)
+     */
+    public List<GroupAddress> getGroupAddressesByDataPointType(int mainType, int subType) {
+        return project.getGroupAddressesByDataPointType(mainType, subType);
+    }
+
+    /**
+     * @param mainType DPT main type, f.i. 9
+     * @return unmodifiable list of group addresses, sorted by sub type and
+     * address
+     * @see Project#getGroupAddressesByDataPointType(int)
+     */
+    public List<GroupAddress> getGroupAddressesByDataPointType(int mainType) {
+        return project.getGroupAddressesByDataPointType(mainType);
+    }
+
+    /**
+     * @return unmodifiable list of group addresses, sorted by address
+     * @see Project#getUnconnectedGroupAddresses()
+     */
+    public List<GroupAddress> getUnconnectedGroupAddresses() {
+        return project.getUnconnectedGroupAddresses();
+    }
+
+    /**
+     * @param address individual address with dot-notation, f.i. 1.1.100
+     * @return the first device with the given address or null if not found
+     * @see Project#getDevice(String)
+     */
+    public Device getDevice(String address) {
+        return project.getDevice(address);
+    }
+
+    /**
+     * @param individualAddress 16 bit individual address, f.i. 0x1164 for
+     * 1.1.100
+     * @return the first device with the given address or null if not found
+     * @see Project#getDevice(int)
+     */
+    public Device getDevice(int individualAddress) {
+        return project.getDevice(individualAddress);
+    }
+
+    /**
+     * @param area area, 0..15
+     * @return unmodifiable list of devices
+     * @see Project#getDevices(int)
+     */
+    public List<Device> getDevices(int area) {
+        return project.getDevices(area);
+    }
+
+    /**
+     * @param area area, 0..15
+     * @param line line, 0..15
+     * @return unmodifiable list of devices
+     * @see Project#getDevices(int, int)
+     */
+    public List<Device> getDevices(int area, int line) {
+        return project.getDevices(area, line);
+    }
+
+    /**
+     * @return unmodifiable list of devices
+     * @see Project#getDeviceList()
+     */
+    public List<Device> getDeviceList() {
+        return devices;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectSnapshot{" + "name=" + getName() + ", groupAddresses=" + groupAddresses.size() + ", devices=" + devices.size() + '}';
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+/**
+ * Receives projects, devices and group addresses while a .knxproj file is
+ * read with {@link KnxProjReader#visit(java.io.File, ReaderOptions, ProjectVisitor)}.
+ * Nothing is kept by the reader, so each record can be processed or forwarded
+ * and then be garbage collected. All methods are called on the reading thread.
+ * Exceptions thrown by the visitor stop reading and are passed to the caller.
+ *
+ * @author achristian
+ */
+public interface ProjectVisitor {
+
+    /**
+     * Called when a project starts, before any of its devices and group
+     * addresses. The project has no devices and group addresses.
+     *
+     * @param project name, ID and dates of the project
+     */
+    void onProject(Project project);
+
+    /**
+     * Called for each device of a project, in document order
+     *
+     * @param project project the device belongs to
+     * @param device the device
+     */
+    void onDevice(Project project, Device device);
+
+    /**
+     * Called for each group address of a project as soon as it has been read,
+     * in document order. DPT and connected-state are not known yet.
+     *
+     * @param project project the group address belongs to
+     * @param groupAddress the unresolved group address
+     */
+    void onGroupAddress(Project project, GroupAddress groupAddress);
+
+    /**
+     * Called for each group address after {@link #onGroupAddress(Project, GroupAddress)},
+     * when DPT and connected-state have been set from the connected device
+     * and the user configuration. The DPT is unspecified if none could be
+     * found. Group addresses which only exist in the user configuration are
+     * passed to both methods after all other group addresses of the first
+     * project.
+     * <p>
+     * The user configuration is combined per address like by
+     * {@link KnxProjReader}. If several group addresses have the same
+     * address, it is applied to the first of them in document order, as the
+     * later ones are not known yet. {@link KnxProjReader} applies it to the
+     * one returned by {@link Project#getGroupAddress(String)} instead, which
+     * is the last in document order of the first installation having the
+     * address.
+     *
+     * @param project project the group address belongs to
+     * @param groupAddress the resolved group address
+     */
+    void onDptResolved(Project project, GroupAddress groupAddress);
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import org.jdom2.JDOMException;
+
+/**
+ * Part of a read which runs on a {@link ForkJoinPool}, see
+ * {@link ReaderOptions#setForkJoinPool(ForkJoinPool)}. Exceptions are kept
+ * as they are and rethrown by {@link #invokeAll(ForkJoinPool, List)} on the
+ * reading thread.
+ *
+ * @author achristian
+ * @param <T> result of the task
+ */
+abstract class ReadTask<T> extends RecursiveTask<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private Exception error;
+
+    /**
+     * Does the work of this task
+     *
+     * @return result
+     * @throws IOException
+     * @throws JDOMException
+     */
+    abstract T read() throws IOException, JDOMException;
+
+    @Override
+    protected final T compute() {
+        try {
+            return read();
+        } catch (IOException | JDOMException | RuntimeException ex) {
+            error = ex;
+            return null;
+        }
+    }
+
+    /**
+     * Runs tasks in parallel and waits for all of them. If called from a
+     * task of the same pool, f.i. for the installations of a project read in
+     * parallel, the calling thread works on the tasks too.
+     *
+     * @param <T>
+     * @param pool pool to run the tasks on
+     * @param tasks
+     * @return results, in order of the tasks
+     * @throws IOException the first exception of the tasks, in order of the
+     * tasks
+     * @throws JDOMException the first exception of the tasks, in order of
+     * the tasks
+     */
+    static <T> List<T> invokeAll(ForkJoinPool pool, List<? extends ReadTask<T>> tasks) throws IOException, JDOMException {
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (ReadTask<T> task : tasks) {
+                pool.execute(task);
+            }
+            try {
+                for (ReadTask<T> task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException ex) {
+                for (ReadTask<T> task : tasks) {
+                    task.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading in parallel");
+            } catch (ExecutionException ex) {
+                // compute() only throws errors
+                if (ex.getCause() instanceof Error) {
+                    throw (Error) ex.getCause();
+                }
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        for (ReadTask<T> task : tasks) {
+            if (task.error instanceof IOException) {
+                throw (IOException) task.error;
+            }
+            if (task.error instanceof JDOMException) {
+                throw (JDOMException) task.error;
+            }
+            if (task.error instanceof RuntimeException) {
+                throw (RuntimeException) task.error;
+            }
+            results.add(task.getRawResult());
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options for reading a .knxproj file. All setters return the options
+ * instance, so that calls can be chained:
+ * <pre>
+ * ReaderOptions options = new ReaderOptions().setExtractToTempFolder(true);
+ * KnxProjReader kpr = new KnxProjReader(file, options);
+ * </pre>
+ *
+ * @author achristian
+ */
+public class ReaderOptions {
+
+    private boolean extractToTempFolder = false;
+    private boolean streamingParser = true;
+    private boolean referencedComObjectRefsOnly = false;
+    private File dptCacheDirectory = null;
+    private Executor executor = null;
+    private ForkJoinPool forkJoinPool = null;
+    private File snapshotFile = null;
+    private boolean incrementalReread = false;
+    private boolean compactGroupAddresses = false;
+    private LoadStatisticsListener statisticsListener = null;
+    private LoadProgressListener progressListener = null;
+    private SharedDptCache sharedDptCache = null;
+    private boolean purgeUserConfiguration = System.getProperty("purge") != null;
+
+    /**
+     * Whether the .knxproj file is extracted to a temp folder before reading
+     *
+     * @return true, if content is extracted first
+     */
+    public boolean isExtractToTempFolder() {
+        return extractToTempFolder;
+    }
+
+    /**
+     * By default, the required entries are read directly out of the .knxproj
+     * zip file. If set to true, the whole file is extracted to a temp folder
+     * first, which is deleted afterwards.
+     *
+     * @param extractToTempFolder true to extract, false to read directly
+     * @return this options instance
+     */
+    public ReaderOptions setExtractToTempFolder(boolean extractToTempFolder) {
+        this.extractToTempFolder = extractToTempFolder;
+        return this;
+    }
+
+    /**
+     * Whether the project data is read with a streaming parser
+     *
+     * @return true, if streaming parser is used
+     */
+    public boolean isStreamingParser() {
+        return streamingParser;
+    }
+
+    /**
+     * By default, the project data (devices and group addresses in
+     * P-xxxx/0.xml) and the ComObject DPTs of the manufacturer application
+     * files are read with a streaming parser, without building a document of
+     * the whole file in memory. If set to false, JDOM documents are built
+     * instead.
+     *
+     * @param streamingParser true for streaming parser, false for JDOM
+     * @return this options instance
+     */
+    public ReaderOptions setStreamingParser(boolean streamingParser) {
+        this.streamingParser = streamingParser;
+        return this;
+    }
+
+    /**
+     * Whether only the referenced ComObjectRefs of manufacturer application
+     * files are kept
+     *
+     * @return true, if unreferenced ComObjectRefs are dropped
+     */
+    public boolean isReferencedComObjectRefsOnly() {
+        return referencedComObjectRefsOnly;
+    }
+
+    /**
+     * If set to true, only the DPTs of those ComObjectRefs which are
+     * connected to a group address in the project are kept when reading
+     * manufacturer application files. This reduces memory for applications
+     * with many communication objects. Default is false.
+     *
+     * @param referencedComObjectRefsOnly true to keep referenced ComObjectRefs
+     * only
+     * @return this options instance
+     */
+    public ReaderOptions setReferencedComObjectRefsOnly(boolean referencedComObjectRefsOnly) {
+        this.referencedComObjectRefsOnly = referencedComObjectRefsOnly;
+        return this;
+    }
+
+    /**
+     * Directory of the persistent DPT cache
+     *
+     * @return cache directory or null, if not used
+     */
+    public File getDptCacheDirectory() {
+        return dptCacheDirectory;
+    }
+
+    /**
+     * Sets a directory in which the DPT tables of manufacturer application
+     * files are stored. Tables are stored per application and checksum of
+     * the application file, so a later read of a project using the same
+     * application doesn't need to parse the application file again. The
+     * directory may be shared by several processes. Default is null (not
+     * used).
+     *
+     * @param dptCacheDirectory cache directory, created if not existing
+     * @return this options instance
+     */
+    public ReaderOptions setDptCacheDirectory(File dptCacheDirectory) {
+        this.dptCacheDirectory = dptCacheDirectory;
+        return this;
+    }
+
+    /**
+     * Executor for parsing in parallel
+     *
+     * @return executor or null, if everything is parsed in the calling thread
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets an executor on which the manufacturer application files are
+     * parsed in parallel. The required files are determined up front and
+     * parsed concurrently, before the DPTs are assigned. The executor is not
+     * shut down by the reader. Default is null: files are parsed one after
+     * another in the calling thread.
+     *
+     * @param executor executor, f.i. a fixed thread pool
+     * @return this options instance
+     */
+    public ReaderOptions setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Fork/join pool for reading projects in parallel
+     *
+     * @return pool or null, if projects are read in the calling thread
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Sets a fork/join pool on which the projects of a .knxproj file are
+     * read in parallel. With the DOM parser (see
+     * {@link #setStreamingParser(boolean)}), topology and group addresses of
+     * each installation are read in parallel too. Results are merged in
+     * document order, so projects, devices and group addresses are in the
+     * same order as without pool. The pool is not shut down by the reader.
+     * Default is null: everything is read one after another in the calling
+     * thread.
+     *
+     * @param forkJoinPool pool, f.i. new ForkJoinPool()
+     * @return this options instance
+     */
+    public ReaderOptions setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+        return this;
+    }
+
+    /**
+     * Snapshot file of the read projects
+     *
+     * @return snapshot file or null, if not used
+     */
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Sets a file in which the fully read projects are stored in a compact
+     * binary format. As long as neither the .knxproj file nor its .user.xml
+     * file change, the projects are read from this snapshot file on the next
+     * read, which is much faster than reading the .knxproj file. Otherwise
+     * the .knxproj file is read and the snapshot file is rewritten. Default
+     * is null (not used).
+     *
+     * @param snapshotFile snapshot file, f.i. "myproject.knxproj.snapshot"
+     * @return this options instance
+     */
+    public ReaderOptions setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    /**
+     * Whether the reader keeps data for an incremental re-read
+     *
+     * @return true, if incremental re-read is enabled
+     */
+    public boolean isIncrementalReread() {
+        return incrementalReread;
+    }
+
+    /**
+     * If set to true, the reader keeps the unresolved projects, the CRCs of
+     * the read entries and the DPT tables of the manufacturer application
+     * files. When the reader is later passed to
+     * {@link KnxProjReader#KnxProjReader(java.io.File, KnxProjReader)} for a
+     * changed .knxproj file, only changed entries are parsed again. This
+     * needs additional memory for as long as the reader is referenced.
+     * Default is false.
+     *
+     * @param incrementalReread true to enable incremental re-read
+     * @return this options instance
+     */
+    public ReaderOptions setIncrementalReread(boolean incrementalReread) {
+        this.incrementalReread = incrementalReread;
+        return this;
+    }
+
+    /**
+     * Whether group addresses are stored compact
+     *
+     * @return true, if group addresses are stored compact
+     */
+    public boolean isCompactGroupAddresses() {
+        return compactGroupAddresses;
+    }
+
+    /**
+     * If set to true, group addresses of a project are stored in primitive
+     * arrays and a shared string pool instead of one object per group
+     * address. This reduces memory usage of large projects several times.
+     * The {@link GroupAddress} objects returned by a project are then views,
+     * which are created on each access and should be compared with
+     * {@link GroupAddress#equals(Object)}. Projects restored from a snapshot
+     * file are not affected. Default is false.
+     *
+     * @param compactGroupAddresses true to store group addresses compact
+     * @return this options instance
+     */
+    public ReaderOptions setCompactGroupAddresses(boolean compactGroupAddresses) {
+        this.compactGroupAddresses = compactGroupAddresses;
+        return this;
+    }
+
+    /**
+     * Listener which receives the statistics of each read
+     *
+     * @return listener, or null if not set
+     */
+    public LoadStatisticsListener getStatisticsListener() {
+        return statisticsListener;
+    }
+
+    /**
+     * Sets a listener which receives the statistics of each read, f.i. to
+     * forward them to a metrics system. The statistics are also available
+     * with {@link KnxProjReader#getStatistics()}. Default is null.
+     *
+     * @param statisticsListener listener, or null for none
+     * @return this options instance
+     */
+    public ReaderOptions setStatisticsListener(LoadStatisticsListener statisticsListener) {
+        this.statisticsListener = statisticsListener;
+        return this;
+    }
+
+    /**
+     * Listener which receives the progress of reading
+     *
+     * @return listener, or null if not set
+     */
+    public LoadProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Sets a listener which receives the progress of reading: start of each
+     * phase and each manufacturer application file done. Default is null.
+     *
+     * @param progressListener listener, or null for none
+     * @return this options instance
+     * @see KnxProjReader#readAsync(java.io.File, ReaderOptions,
+     * java.util.concurrent.Executor)
+     */
+    public ReaderOptions setProgressListener(LoadProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Cache for DPT tables shared with other readers
+     *
+     * @return shared cache, or null if not set
+     */
+    public SharedDptCache getSharedDptCache() {
+        return sharedDptCache;
+    }
+
+    /**
+     * Sets an in-memory cache for the DPT tables of manufacturer application
+     * files, which is shared with other readers using the same cache. It is
+     * asked before the persistent DPT cache (see
+     * {@link #setDptCacheDirectory(File)}). Default is null.
+     *
+     * @param sharedDptCache shared cache, or null for none
+     * @return this options instance
+     * @see KnxProjBatchReader
+     */
+    public ReaderOptions setSharedDptCache(SharedDptCache sharedDptCache) {
+        this.sharedDptCache = sharedDptCache;
+        return this;
+    }
+
+    /**
+     * Whether entries are removed from the user configuration, once ETS
+     * defines connection and DPT of their group address
+     *
+     * @return true, if entries are purged
+     */
+    public boolean isPurgeUserConfiguration() {
+        return purgeUserConfiguration;
+    }
+
+    /**
+     * Sets whether entries are removed from the user configuration
+     * (.knxproj.user.xml), once the group address is connected to a device
+     * and has a DPT in ETS. Default is false, or true if the system property
+     * "purge" is set.
+     *
+     * @param purgeUserConfiguration true to purge entries
+     * @return this options instance
+     */
+    public ReaderOptions setPurgeUserConfiguration(boolean purgeUserConfiguration) {
+        this.purgeUserConfiguration = purgeUserConfiguration;
+        return this;
+    }
+
+    /**
+     * Creates a copy of these options
+     *
+     * @return new options instance with the same settings
+     */
+    ReaderOptions copy() {
+        ReaderOptions copy = new ReaderOptions();
+        copy.extractToTempFolder = extractToTempFolder;
+        copy.streamingParser = streamingParser;
+        copy.referencedComObjectRefsOnly = referencedComObjectRefsOnly;
+        copy.dptCacheDirectory = dptCacheDirectory;
+        copy.executor = executor;
+        copy.forkJoinPool = forkJoinPool;
+        copy.snapshotFile = snapshotFile;
+        copy.incrementalReread = incrementalReread;
+        copy.compactGroupAddresses = compactGroupAddresses;
+        copy.statisticsListener = statisticsListener;
+        copy.progressListener = progressListener;
+        copy.sharedDptCache = sharedDptCache;
+        copy.purgeUserConfiguration = purgeUserConfiguration;
+        return copy;
+    }
+
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * In-memory cache for the DPT tables of manufacturer application files, which
+ * can be shared by several readers, also concurrently. Readers of projects
+ * using the same application programs then parse each application file only
+ * once. See {@link ReaderOptions#setSharedDptCache(SharedDptCache)}.
+ * Readers which need a table while another reader is loading it wait for
+ * that load instead of parsing the file again.
+ * <p>
+ * The cache can be bounded by number of tables and by estimated heap size.
+ * When a bound is exceeded, least recently used tables are evicted. To allow
+ * concurrent access, the cache is split into segments with their own lock
+ * and their own share of the bounds, so eviction is LRU per segment. A table
+ * estimated larger than the heap size share of its segment is not cached
+ * at all, see {@link #getRejectionCount()}.
+ * <p>
+ * {@link #getGlobal()} returns a process-wide instance, which is useful for
+ * services reloading projects on demand.
+ *
+ * @author achristian
+ */
+public class SharedDptCache implements DptTableCache {
+
+    /**
+     * Estimated heap size per table entry, without the ComObjectRef ID's
+     * characters. DPT strings are shared and not counted.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private static final int TABLE_OVERHEAD = 128;
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * bound of the global cache: 64 MB
+     */
+    private static final long GLOBAL_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static SharedDptCache global;
+
+    private final Segment[] segments;
+
+    /**
+     * key -> load in progress, see {@link #get(String, long, Callable)}
+     */
+    private final ConcurrentMap<String, FutureTask<Map<String, String>>> loads = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an unbounded cache
+     */
+    public SharedDptCache() {
+        this(0, 0);
+    }
+
+    /**
+     *
+     * @param maxTables max. number of cached tables, 0 for no limit
+     * @param maxBytes max. estimated heap size of all cached tables in bytes,
+     * 0 for no limit. Each of the up to 16 segments gets an equal share.
+     */
+    public SharedDptCache(int maxTables, long maxBytes) {
+        if (maxTables < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Bounds must not be negative");
+        }
+        int segmentCount = MAX_SEGMENTS;
+        while (maxTables > 0 && segmentCount > maxTables) {
+            segmentCount >>= 1;
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // first segments get the remainder
+            int tables = maxTables / segmentCount + (i < maxTables % segmentCount ? 1 : 0);
+            segments[i] = new Segment(tables, maxBytes / segmentCount);
+        }
+    }
+
+    /**
+     * Gets the process-wide cache, bounded to 64 MB estimated heap size. The
+     * bound is split into 16 segments, so tables estimated larger than 4 MB
+     * are not cached.
+     *
+     * @return global cache
+     */
+    public static synchronized SharedDptCache getGlobal() {
+        if (global == null) {
+            global = new SharedDptCache(0, GLOBAL_MAX_BYTES);
+        }
+        return global;
+    }
+
+    @Override
+    public Map<String, String> get(String applicationId, long crc) {
+        String key = applicationId + "/" + crc;
+        return segmentFor(key).get(key);
+    }
+
+    @Override
+    public void put(String applicationId, long crc, Map<String, String> table) {
+        String key = applicationId + "/" + crc;
+        segmentFor(key).put(key, table, estimateSize(table));
+    }
+
+    /**
+     * Gets a table, or loads and stores it if not cached. While a table is
+     * loaded, other callers for the same table wait for this load instead of
+     * running their loader. If the load fails, f.i. because the loading reader
+     * was interrupted, waiting callers run their own loader.
+     *
+     * @param applicationId f.i. M-0083_A-0030-20-FCCB
+     * @param crc CRC-32 of the application file
+     * @param loader loads the complete table
+     * @return ComObjectRef -> DPT
+     * @throws ExecutionException if the loader failed
+     * @throws InterruptedException if interrupted while waiting for the load
+     * of another caller
+     */
+    Map<String, String> get(String applicationId, long crc, Callable<Map<String, String>> loader) throws ExecutionException, InterruptedException {
+        String key = applicationId + "/" + crc;
+        Segment segment = segmentFor(key);
+        Map<String, String> table = segment.get(key);
+        if (table != null) {
+            return table;
+        }
+
+        FutureTask<Map<String, String>> load = new FutureTask<>(loader);
+        FutureTask<Map<String, String>> running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            try {
+                return running.get();
+            } catch (ExecutionException | CancellationException ex) {
+                // load again with our loader
+            }
+        } else {
+            // a load may have finished between the lookup and putIfAbsent
+            table = segment.peek(key);
+            if (table != null) {
+                loads.remove(key, load);
+                return table;
+            }
+        }
+
+        try {
+            load.run();
+            table = load.get();
+            segment.put(key, table, estimateSize(table));
+            return table;
+        } finally {
+            if (running == null) {
+                loads.remove(key, load);
+            }
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * Roughly estimates the heap size of a table
+     *
+     * @param table
+     * @return size in bytes
+     */
+    private static long estimateSize(Map<String, String> table) {
+        long size = TABLE_OVERHEAD;
+        for (String refId : table.keySet()) {
+            size += ENTRY_OVERHEAD + 2L * refId.length();
+        }
+        return size;
+    }
+
+    /**
+     * Number of cached tables
+     *
+     * @return number of tables
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.tables.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimated heap size of all cached tables
+     *
+     * @return size in bytes
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Number of requests which found a table
+     *
+     * @return number of hits
+     */
+    public long getHitCount() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Number of requests which didn't find a table
+     *
+     * @return number of misses
+     */
+    public long getMissCount() {
+        long misses = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Number of tables evicted because a bound was exceeded
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                evictions += segment.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * Number of tables not cached because they alone exceed the heap size
+     * share of their segment, i.e. the max. bytes divided by the number of
+     * segments
+     *
+     * @return number of rejected tables
+     */
+    public long getRejectionCount() {
+        long rejections = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                rejections += segment.rejections;
+            }
+        }
+        return rejections;
+    }
+
+    /**
+     * Removes all tables. Statistics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.tables.clear();
+                segment.sizes.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SharedDptCache{" + "tables=" + size() + ", estimatedBytes=" + getEstimatedBytes() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", rejections=" + getRejectionCount() + '}';
+    }
+
+    /**
+     * Part of the cache with its own lock and LRU order
+     */
+    private static class Segment {
+
+        private final int maxTables;
+        private final long maxBytes;
+
+        /**
+         * in access order, eldest first
+         */
+        private final LinkedHashMap<String, Map<String, String>> tables = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<String, Long> sizes = new HashMap<>();
+        private long bytes;
+
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long rejections;
+
+        Segment(int maxTables, long maxBytes) {
+            this.maxTables = maxTables;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Map<String, String> get(String key) {
+            Map<String, String> table = tables.get(key);
+            if (table != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return table;
+        }
+
+        /**
+         * Gets a table without counting a hit or miss
+         */
+        synchronized Map<String, String> peek(String key) {
+            return tables.get(key);
+        }
+
+        synchronized void put(String key, Map<String, String> table, long size) {
+            if (maxBytes > 0 && size > maxBytes) {
+                // would evict everything else and itself
+                rejections++;
+                return;
+            }
+            Long oldSize = sizes.remove(key);
+            if (oldSize != null) {
+                bytes -= oldSize;
+            }
+            tables.put(key, table);
+            sizes.put(key, size);
+            bytes += size;
+
+            Iterator<Map.Entry<String, Map<String, String>>> eldest = tables.entrySet().iterator();
+            while ((maxTables > 0 && tables.size() > maxTables || maxBytes > 0 && bytes > maxBytes) && eldest.hasNext()) {
+                String eldestKey = eldest.next().getKey();
+                if (eldestKey.equals(key)) {
+                    continue;
+                }
+                eldest.remove();
+                bytes -= sizes.remove(eldestKey);
+                evictions++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of fully read projects. The file is memory mapped when
+ * read, so projects are available again within milliseconds. Names and
+ * internal IDs of group addresses are decoded on first access.
+ * <p>
+ * A snapshot is only valid as long as the .knxproj file and its .user.xml
+ * file have the same size, modification time and content as when the
+ * snapshot was written. The content of the .knxproj file is compared by a
+ * CRC-32 over the names and CRCs of its entries, which are taken from the
+ * zip's central directory without inflating anything. The .user.xml file is
+ * small, so its own CRC-32 is used.
+ * <p>
+ * File format (big endian):
+ * <pre>
+ * int     magic "KPSN"
+ * short   version
+ * long    size of .knxproj file
+ * long    last modification of .knxproj file
+ * long    CRC-32 over names and CRCs of the .knxproj entries
+ * long    size of .user.xml file, -1 if not existing
+ * long    last modification of .user.xml file, -1 if not existing
+ * long    CRC-32 of .user.xml file, -1 if not existing
+ * int     number of strings
+ * int     offset of string (repeated), plus end offset of last string
+ * byte[]  UTF-8 encoded strings
+ * int     number of projects
+ *   int     internal ID (string ref)
+ *   int     name (string ref)
+ *   long    last modification
+ *   long    project start
+ *   int     number of devices
+ *     int     address (string ref)
+ *     int     name (string ref)
+ *   int     number of group addresses
+ *     int     address (string ref)
+ *     int     name (string ref)
+ *     int     internal ID (string ref)
+ *     short   DPT main type
+ *     short   DPT sub type
+ *     byte    flags: 1=connected, 2=user configured
+ *   group ranges:
+ *   int     number of group ranges
+ *     int     name (string ref)
+ *     int     range start
+ *     int     range end
+ *     group ranges (nested ranges, same layout)
+ * </pre> String refs are indices into the string table, -1 stands for null.
+ * <p>
+ * Devices of a restored project don't have their ComObjectInstanceRefs, as
+ * those are only required during reading the project.
+ *
+ * @author achristian
+ */
+class SnapshotFile {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final int MAGIC = 0x4B50534E; // KPSN
+    private static final short VERSION = 3;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte FLAG_CONNECTED = 1;
+    private static final byte FLAG_USERCONFIGURED = 2;
+
+    private final File file;
+
+    /**
+     *
+     * @param file snapshot file
+     */
+    SnapshotFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the projects from the snapshot file
+     *
+     * @param knxprojFile the .knxproj file the snapshot was written for
+     * @return projects, or null if there's no valid snapshot for the given
+     * .knxproj file
+     */
+    List<Project> read(File knxprojFile) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                log.warn("Ignoring snapshot file {} with unknown format", file.getAbsolutePath());
+                return null;
+            }
+            File userConfigFile = UserConfiguration.getFile(knxprojFile);
+            if (buffer.getLong() != knxprojFile.length()
+                    || buffer.getLong() != knxprojFile.lastModified()
+                    || buffer.getLong() != getArchiveCrc(knxprojFile)
+                    || buffer.getLong() != (userConfigFile.exists() ? userConfigFile.length() : -1)
+                    || buffer.getLong() != (userConfigFile.exists() ? userConfigFile.lastModified() : -1)
+                    || buffer.getLong() != getFileCrc(userConfigFile)) {
+                log.debug("Snapshot file {} is outdated", file.getAbsolutePath());
+                return null;
+            }
+
+            int stringCount = buffer.getInt();
+            int offsetsPosition = buffer.position();
+            int dataPosition = offsetsPosition + (stringCount + 1) * 4;
+            MappedStringTable strings = new MappedStringTable(buffer, stringCount, offsetsPosition, dataPosition);
+            buffer.position(dataPosition + buffer.getInt(offsetsPosition + stringCount * 4));
+
+            List<Project> projects = new ArrayList<>();
+            int projectCount = buffer.getInt();
+            for (int i = 0; i < projectCount; i++) {
+                Project project = new Project(
+                        strings.getOrNull(buffer.getInt()),
+                        strings.getOrNull(buffer.getInt()),
+                        toCalendar(buffer.getLong()),
+                        toCalendar(buffer.getLong()));
+
+                int deviceCount = buffer.getInt();
+                for (int d = 0; d < deviceCount; d++) {
+                    project.addDevice(new Device(strings.getOrNull(buffer.getInt()), strings.getOrNull(buffer.getInt())));
+                }
+
+                int gaCount = buffer.getInt();
+                for (int g = 0; g < gaCount; g++) {
+                    String address = strings.getOrNull(buffer.getInt());
+                    int nameRef = buffer.getInt();
+                    int internalIdRef = buffer.getInt();
+                    int mainType = buffer.getShort();
+                    int subType = buffer.getShort();
+                    byte flags = buffer.get();
+                    project.addGroupAddress(new SnapshotGroupAddress(address, strings, nameRef, internalIdRef, mainType, subType,
+                            (flags & FLAG_CONNECTED) != 0, (flags & FLAG_USERCONFIGURED) != 0));
+                }
+                for (GroupRange groupRange : readGroupRanges(buffer, strings)) {
+                    project.addGroupRange(groupRange);
+                }
+                projects.add(project);
+            }
+            log.debug("Read {} projects from snapshot file {}", projects.size(), file.getAbsolutePath());
+            return projects;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable snapshot file " + file.getAbsolutePath(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the projects to the snapshot file. The file is written to a temp
+     * file first, which then replaces the snapshot file.
+     *
+     * @param knxprojFile the .knxproj file the projects have been read from
+     * @param projects the projects
+     * @throws IOException
+     */
+    void write(File knxprojFile, List<Project> projects) throws IOException {
+
+        // string <-> index in string table
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        for (Project project : projects) {
+            add(stringIndex, strings, project.getInternalId());
+            add(stringIndex, strings, project.getName());
+            for (Device device : project.getDeviceList()) {
+                add(stringIndex, strings, device.getAddress());
+                add(stringIndex, strings, device.getName());
+            }
+            for (GroupAddress ga : project.getGroupaddressList()) {
+                add(stringIndex, strings, ga.getAddress());
+                add(stringIndex, strings, ga.getDefinedName());
+                add(stringIndex, strings, ga.getInternalId());
+            }
+            addGroupRangeNames(stringIndex, strings, project.getGroupRanges());
+        }
+
+        File userConfigFile = UserConfiguration.getFile(knxprojFile);
+        File parent = file.getAbsoluteFile().getParentFile();
+        Path tmpFile = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(knxprojFile.length());
+                out.writeLong(knxprojFile.lastModified());
+                out.writeLong(getArchiveCrc(knxprojFile));
+                out.writeLong(userConfigFile.exists() ? userConfigFile.length() : -1);
+                out.writeLong(userConfigFile.exists() ? userConfigFile.lastModified() : -1);
+                out.writeLong(getFileCrc(userConfigFile));
+
+                out.writeInt(strings.size());
+                int offset = 0;
+                for (byte[] string : strings) {
+                    out.writeInt(offset);
+                    offset += string.length;
+                }
+                out.writeInt(offset);
+                for (byte[] string : strings) {
+                    out.write(string);
+                }
+
+                out.writeInt(projects.size());
+                for (Project project : projects) {
+                    out.writeInt(ref(stringIndex, project.getInternalId()));
+                    out.writeInt(ref(stringIndex, project.getName()));
+                    out.writeLong(project.getLastModified().getTimeInMillis());
+                    out.writeLong(project.getProjectStart().getTimeInMillis());
+
+                    out.writeInt(project.getDeviceList().size());
+                    for (Device device : project.getDeviceList()) {
+                        out.writeInt(ref(stringIndex, device.getAddress()));
+                        out.writeInt(ref(stringIndex, device.getName()));
+                    }
+
+                    out.writeInt(project.getGroupaddressList().size());
+                    for (GroupAddress ga : project.getGroupaddressList()) {
+                        out.writeInt(ref(stringIndex, ga.getAddress()));
+                        out.writeInt(ref(stringIndex, ga.getDefinedName()));
+                        out.writeInt(ref(stringIndex, ga.getInternalId()));
+                        out.writeShort(ga.getMainType());
+                        out.writeShort(ga.getSubType());
+                        out.writeByte((ga.isConnected() ? FLAG_CONNECTED : 0) | (ga.isUserConfigured() ? FLAG_USERCONFIGURED : 0));
+                    }
+                    writeGroupRanges(out, stringIndex, project.getGroupRanges());
+                }
+            }
+            Utils.moveAtomically(tmpFile, file.toPath());
+            log.debug("Wrote snapshot file {}", file.getAbsolutePath());
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static List<GroupRange> readGroupRanges(MappedByteBuffer buffer, MappedStringTable strings) {
+        int count = buffer.getInt();
+        List<GroupRange> groupRanges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GroupRange groupRange = new GroupRange(strings.getOrNull(buffer.getInt()), buffer.getInt(), buffer.getInt());
+            for (GroupRange child : readGroupRanges(buffer, strings)) {
+                groupRange.addGroupRange(child);
+            }
+            groupRanges.add(groupRange);
+        }
+        return groupRanges;
+    }
+
+    private static void writeGroupRanges(DataOutputStream out, Map<String, Integer> stringIndex, List<GroupRange> groupRanges) throws IOException {
+        out.writeInt(groupRanges.size());
+        for (GroupRange groupRange : groupRanges) {
+            out.writeInt(ref(stringIndex, groupRange.getName()));
+            out.writeInt(groupRange.getRangeStart());
+            out.writeInt(groupRange.getRangeEnd());
+            writeGroupRanges(out, stringIndex, groupRange.getGroupRanges());
+        }
+    }
+
+    private static void addGroupRangeNames(Map<String, Integer> stringIndex, List<byte[]> strings, List<GroupRange> groupRanges) {
+        for (GroupRange groupRange : groupRanges) {
+            add(stringIndex, strings, groupRange.getName());
+            addGroupRangeNames(stringIndex, strings, groupRange.getGroupRanges());
+        }
+    }
+
+    /**
+     * CRC-32 over the names and CRCs of all entries of the .knxproj file. Only
+     * the central directory is read.
+     */
+    private static long getArchiveCrc(File knxprojFile) throws IOException {
+        CRC32 crc = new CRC32();
+        try (ZipFile zipFile = new ZipFile(knxprojFile)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                crc.update(entry.getName().getBytes(UTF8));
+                long entryCrc = entry.getCrc();
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    crc.update((int) (entryCrc >>> shift));
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * CRC-32 of the file's content, or -1 if the file doesn't exist
+     */
+    private static long getFileCrc(File file) throws IOException {
+        if (!file.exists()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(file.toPath()));
+        return crc.getValue();
+    }
+
+    private static Calendar toCalendar(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    private static void add(Map<String, Integer> stringIndex, List<byte[]> strings, String string) {
+        if (string != null && !stringIndex.containsKey(string)) {
+            stringIndex.put(string, strings.size());
+            strings.add(string.getBytes(UTF8));
+        }
+    }
+
+    private static int ref(Map<String, Integer> stringIndex, String string) {
+        return string == null ? -1 : stringIndex.get(string);
+    }
+
+    /**
+     * String table in a mapped snapshot file. Strings are decoded on first
+     * access and kept afterwards.
+     */
+    private static class MappedStringTable implements StringTable {
+
+        private final ByteBuffer buffer;
+        private final int offsetsPosition;
+        private final int dataPosition;
+        private final String[] decoded;
+
+        MappedStringTable(ByteBuffer buffer, int count, int offsetsPosition, int dataPosition) {
+            this.buffer = buffer;
+            this.offsetsPosition = offsetsPosition;
+            this.dataPosition = dataPosition;
+            this.decoded = new String[count];
+        }
+
+        @Override
+        public String get(int index) {
+            // Strings are immutable, so decoding the same string twice in
+            // concurrent threads does no harm
+            String string = decoded[index];
+            if (string == null) {
+                int start = buffer.getInt(offsetsPosition + index * 4);
+                int end = buffer.getInt(offsetsPosition + (index + 1) * 4);
+                byte[] bytes = new byte[end - start];
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(dataPosition + start);
+                slice.get(bytes);
+                string = new String(bytes, UTF8);
+                decoded[index] = string;
+            }
+            return string;
+        }
+
+        String getOrNull(int index) {
+            return index == -1 ? null : get(index);
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+/**
+ * Group address restored from a snapshot file. Name and internal ID are
+ * decoded from the snapshot's string table when first accessed.
+ *
+ * @author achristian
+ */
+class SnapshotGroupAddress extends GroupAddress {
+
+    private final StringTable strings;
+    private int nameRef;
+    private int internalIdRef;
+
+    /**
+     *
+     * @param address textual group address
+     * @param strings string table of the snapshot file
+     * @param nameRef index of the name in string table, -1 for none
+     * @param internalIdRef index of the internal ID in string table, -1 for
+     * none
+     * @param mainType
+     * @param subType
+     * @param connected
+     * @param userConfigured
+     */
+    SnapshotGroupAddress(String address, StringTable strings, int nameRef, int internalIdRef, int mainType, int subType, boolean connected, boolean userConfigured) {
+        super(address);
+        this.strings = strings;
+        this.nameRef = nameRef;
+        this.internalIdRef = internalIdRef;
+        setDataPointType(DataPointType.of(mainType, subType));
+        setConnected(connected);
+        setUserConfigured(userConfigured);
+    }
+
+    @Override
+    String getInternalId() {
+        if (internalIdRef != -1) {
+            super.setInternalId(strings.get(internalIdRef));
+            internalIdRef = -1;
+        }
+        return super.getInternalId();
+    }
+
+    @Override
+    void setInternalId(String internalId) {
+        internalIdRef = -1;
+        super.setInternalId(internalId);
+    }
+
+    @Override
+    String getDefinedName() {
+        if (nameRef != -1) {
+            super.setName(strings.get(nameRef));
+            nameRef = -1;
+        }
+        return super.getDefinedName();
+    }
+
+    @Override
+    void setName(String name) {
+        nameRef = -1;
+        super.setName(name);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes the IDs and DPT strings read from the project and
+ * manufacturer files, so each distinct value is held only once in memory.
+ * As equal IDs are then the same instance, hash lookups with them mostly
+ * succeed with a reference comparison. Used for a single read of a project,
+ * can be used from several threads.
+ *
+ * @author achristian
+ */
+class SymbolTable {
+
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the canonical instance of a string
+     *
+     * @param value string, may be null
+     * @return canonical instance, or null if value is null
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String symbol = symbols.putIfAbsent(value, value);
+        return symbol != null ? symbol : value;
+    }
+
+    /**
+     * Number of distinct strings
+     *
+     * @return number of strings
+     */
+    int size() {
+        return symbols.size();
+    }
+
+}
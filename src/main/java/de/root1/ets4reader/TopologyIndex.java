@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the devices of a project by packed individual address. Each line
+ * has an array with a slot per member address, so a device is found with two
+ * array accesses. Arrays are only created for lines which have devices.
+ *
+ * @author achristian
+ */
+class TopologyIndex {
+
+    /**
+     * line address (4 bit area, 4 bit line) <-> member address <-> first
+     * device with this address
+     */
+    private final Device[][] members = new Device[256][];
+
+    /**
+     * line address <-> devices of the line, in order of adding
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayList<Device>[] lines = new ArrayList[256];
+
+    /**
+     * area <-> devices of the area, in order of adding
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayList<Device>[] areas = new ArrayList[16];
+
+    /**
+     * Adds a device. Devices with area or line out of range are not indexed.
+     *
+     * @param device
+     */
+    void add(Device device) {
+        if (!Device.isValidLine(device.getArea(), device.getLine())) {
+            return;
+        }
+        int lineAddress = device.getLineAddress();
+        add(lines, lineAddress, device);
+        add(areas, device.getArea(), device);
+
+        int individualAddress = device.getIndividualAddress();
+        if (individualAddress != -1) {
+            Device[] lineMembers = members[lineAddress];
+            if (lineMembers == null) {
+                lineMembers = new Device[256];
+                members[lineAddress] = lineMembers;
+            }
+            // first device with this address wins
+            if (lineMembers[individualAddress & 0xFF] == null) {
+                lineMembers[individualAddress & 0xFF] = device;
+            }
+        }
+    }
+
+    private static void add(ArrayList<Device>[] lists, int index, Device device) {
+        if (lists[index] == null) {
+            lists[index] = new ArrayList<>();
+        }
+        lists[index].add(device);
+    }
+
+    /**
+     * Gets a device by its individual address
+     *
+     * @param individualAddress packed 16 bit individual address
+     * @return first device with this address, or null if not found
+     */
+    Device get(int individualAddress) {
+        if (individualAddress < 0 || individualAddress > 0xFFFF) {
+            return null;
+        }
+        Device[] lineMembers = members[individualAddress >>> 8];
+        return lineMembers != null ? lineMembers[individualAddress & 0xFF] : null;
+    }
+
+    /**
+     * Devices of a line
+     *
+     * @param area
+     * @param line
+     * @return unmodifiable list of devices, in order of adding
+     */
+    List<Device> getLine(int area, int line) {
+        return Device.isValidLine(area, line) ? view(lines[area << 4 | line]) : Collections.<Device>emptyList();
+    }
+
+    /**
+     * Devices of an area
+     *
+     * @param area
+     * @return unmodifiable list of devices, in order of adding
+     */
+    List<Device> getArea(int area) {
+        return area >= 0 && area < areas.length ? view(areas[area]) : Collections.<Device>emptyList();
+    }
+
+    private static List<Device> view(List<Device> devices) {
+        return devices != null ? Collections.unmodifiableList(devices) : Collections.<Device>emptyList();
+    }
+
+    /**
+     * Releases unused capacity of the device lists
+     */
+    void trimToSize() {
+        for (ArrayList<Device> devices : lines) {
+            if (devices != null) {
+                devices.trimToSize();
+            }
+        }
+        for (ArrayList<Device> devices : areas) {
+            if (devices != null) {
+                devices.trimToSize();
+            }
+        }
+    }
+
+}
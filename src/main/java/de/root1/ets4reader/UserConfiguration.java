@@ -0,0 +1,541 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.jdom2.JDOMException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * User configuration of a project (.knxproj.user.xml), which defines DPT and
+ * name of group addresses ETS doesn't know a DPT for:
+ * <pre>
+ * knxprojectuserconfiguration
+ *   ga address="1/1/100" dpt="5.001" name="Livingroom Light"
+ * </pre> The file is read with a StAX stream reader. It is only written if
+ * entries have been added or removed. Then it is read again and copied with
+ * the changes to a temp file in a single pass, which replaces the file.
+ *
+ * @author achristian
+ */
+class UserConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(UserConfiguration.class);
+
+    private static final String ROOT_ELEMENT = "knxprojectuserconfiguration";
+    private static final String NEWLINE = "\n";
+    private static final String INDENT = "  ";
+
+    /**
+     * A &lt;ga&gt; element
+     */
+    static class Entry {
+
+        private final String address;
+        private final DataPointType dpt;
+        private final String name;
+
+        Entry(String address, DataPointType dpt, String name) {
+            this.address = address;
+            this.dpt = dpt;
+            this.name = name;
+        }
+
+        String getAddress() {
+            return address;
+        }
+
+        /**
+         * @return DPT, or null if not defined or invalid
+         */
+        DataPointType getDpt() {
+            return dpt;
+        }
+
+        /**
+         * @return name, or null if not defined
+         */
+        String getName() {
+            return name;
+        }
+    }
+
+    private final File file;
+    private final boolean exists;
+
+    /**
+     * all &lt;ga&gt; elements, in document order
+     */
+    private final List<Entry> entries;
+
+    private UserConfiguration(File file, boolean exists, List<Entry> entries) {
+        this.file = file;
+        this.exists = exists;
+        this.entries = entries;
+    }
+
+    /**
+     * User configuration file of a .knxproj file
+     *
+     * @param knxprojFile
+     * @return the .knxproj.user.xml file next to the .knxproj file
+     */
+    static File getFile(File knxprojFile) {
+        return new File(knxprojFile.getAbsolutePath() + ".user.xml");
+    }
+
+    /**
+     * Reads a user configuration file
+     *
+     * @param file
+     * @return user configuration, without entries if the file does not exist
+     * @throws IOException
+     * @throws JDOMException if the file is not well-formed
+     */
+    static UserConfiguration read(File file) throws IOException, JDOMException {
+        if (!file.exists()) {
+            return new UserConfiguration(file, false, Collections.<Entry>emptyList());
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            XMLStreamReader reader = Utils.createXMLStreamReader(in);
+            try {
+                if (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    while (Utils.nextChild(reader)) {
+                        if (reader.getLocalName().equals("ga") && Utils.namespaceOf(reader).isEmpty()) {
+                            String address = reader.getAttributeValue(null, "address");
+                            entries.add(new Entry(address,
+                                    parseDpt(address, emptyToNull(reader.getAttributeValue(null, "dpt"))),
+                                    emptyToNull(reader.getAttributeValue(null, "name"))));
+                        }
+                        Utils.skip(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new JDOMException("Error reading " + file.getAbsolutePath(), ex);
+        }
+        return new UserConfiguration(file, true, entries);
+    }
+
+    private static DataPointType parseDpt(String address, String dpt) {
+        if (dpt == null) {
+            return null;
+        }
+        try {
+            return DataPointType.parse(dpt);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Ignoring invalid DPT '{}' of GA {} in user configuration", dpt, address);
+            return null;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && value.isEmpty() ? null : value;
+    }
+
+    /**
+     * The configuration of each address, as applied by
+     * {@link #merge(Project, boolean)}: entries without DPT are ignored, of
+     * several entries for an address the DPT of the last one wins and the
+     * name of the last one with a name.
+     *
+     * @return address -> combined entry, in order of the first entry with DPT
+     */
+    Map<String, Entry> getEffectiveEntries() {
+        Map<String, Entry> effective = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            if (entry.getDpt() == null) {
+                continue;
+            }
+            Entry previous = effective.get(entry.getAddress());
+            if (previous != null && entry.getName() == null) {
+                entry = new Entry(entry.getAddress(), entry.getDpt(), previous.getName());
+            }
+            effective.put(entry.getAddress(), entry);
+        }
+        return effective;
+    }
+
+    /**
+     * Merges the user configuration with a project in a single pass over
+     * the entries: DPT and name of entries are applied to the project's
+     * group addresses, entries for unknown addresses are added to the
+     * project as new group addresses. Group addresses with missing DPT or
+     * connection get an empty entry, unless there is an entry already. The
+     * file is only written, if entries have been added or removed, or if it
+     * doesn't exist yet.
+     *
+     * @param project project to apply the configuration to
+     * @param purge true to remove entries of group addresses which are
+     * connected and have a DPT in ETS
+     * @return true, if the file has been written
+     * @throws IOException
+     * @throws JDOMException
+     */
+    boolean merge(Project project, boolean purge) throws IOException, JDOMException {
+        Set<String> knownAddresses = new HashSet<>();
+        for (Entry entry : entries) {
+            knownAddresses.add(entry.getAddress());
+        }
+
+        // get unconnected or dpt-undefined GAs
+        Set<String> missingAddresses = new HashSet<>();
+        List<GroupAddress> gaWithMissingConfig = new ArrayList<>();
+        for (GroupAddress ga : project.getGroupaddressList()) {
+            if (!ga.isConnected() || ga.getMainType() == GroupAddress.UNSPECIFIED) {
+                log.info("{} has missing DPT or is unconnected", ga);
+                missingAddresses.add(ga.getAddress());
+                if (!knownAddresses.contains(ga.getAddress())) {
+                    gaWithMissingConfig.add(ga);
+                }
+            }
+        }
+
+        Set<String> purged = new HashSet<>();
+        for (Entry entry : entries) {
+            GroupAddress groupAddress = project.getGroupAddress(entry.getAddress());
+
+            // decided on the state from ETS, before any entry has been applied
+            if (purge && groupAddress != null && !missingAddresses.contains(entry.getAddress())) {
+                log.info("PURGE: Removing GA={} from userconfig because of ETS config now available", entry.getAddress());
+                purged.add(entry.getAddress());
+                continue;
+            }
+            if (entry.getDpt() == null) {
+                continue;
+            }
+
+            if (groupAddress != null) {
+                groupAddress.setDataPointType(entry.getDpt());
+                groupAddress.setConnected(true);
+                if (entry.getName() != null) {
+                    project.setGroupAddressName(groupAddress, entry.getName());
+                }
+                groupAddress.setUserConfigured(true);
+            } else {
+                groupAddress = new GroupAddress(entry.getAddress(), entry.getDpt(), entry.getName());
+                groupAddress.setConnected(true);
+                groupAddress.setUserConfigured(true);
+                project.addGroupAddress(groupAddress);
+            }
+        }
+
+        if (exists && gaWithMissingConfig.isEmpty() && purged.isEmpty()) {
+            return false;
+        }
+        write(gaWithMissingConfig, purged);
+        return true;
+    }
+
+    /**
+     * Writes the file with added and removed entries. An existing file is
+     * read again and copied event by event to a temp file, leaving out the
+     * removed entries and appending the added ones. Other content and the
+     * formatting of an existing file are kept. The temp file then replaces
+     * the file.
+     *
+     * @param added group addresses to add empty entries for
+     * @param removed addresses of the entries to remove
+     * @throws IOException
+     * @throws JDOMException if the existing file is not well-formed
+     */
+    private void write(List<GroupAddress> added, Set<String> removed) throws IOException, JDOMException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        // unlike Files.createTempFile(), this creates the file with default
+        // permissions, as a new user configuration file would get
+        Path tmpFile = File.createTempFile(file.getName(), ".tmp", parent).toPath();
+        try {
+            copyPermissions(file.toPath(), tmpFile);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                XMLStreamWriter writer = Utils.createXMLStreamWriter(out);
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeCharacters(NEWLINE);
+                if (exists) {
+                    try (InputStream in = Files.newInputStream(file.toPath())) {
+                        XMLStreamReader reader = Utils.createXMLStreamReader(in);
+                        try {
+                            copy(reader, writer, added, removed);
+                        } finally {
+                            reader.close();
+                        }
+                    }
+                } else {
+                    writer.writeStartElement(ROOT_ELEMENT);
+                    writeEntries(writer, added);
+                    writer.writeEndElement();
+                    writer.writeCharacters(NEWLINE);
+                }
+                writer.writeEndDocument();
+                writer.close();
+            } catch (XMLStreamException ex) {
+                throw new JDOMException("Error writing " + file.getAbsolutePath(), ex);
+            }
+            Utils.moveAtomically(tmpFile, file.toPath());
+            log.debug("Wrote user configuration {} (+{} entries, -{} addresses)", file.getAbsolutePath(), added.size(), removed.size());
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * Copies the existing file. Whitespace between the &lt;ga&gt; elements is
+     * held back until the next content, so the whitespace in front of a
+     * removed element is left out with it.
+     *
+     * @param reader reader of the existing file
+     * @param writer writer of the new file, the XML declaration has already
+     * been written
+     * @param added group addresses to append empty entries for
+     * @param removed addresses of the entries to leave out
+     * @throws XMLStreamException
+     */
+    private static void copy(XMLStreamReader reader, XMLStreamWriter writer, List<GroupAddress> added, Set<String> removed) throws XMLStreamException {
+        int depth = 0;
+        StringBuilder whitespace = new StringBuilder();
+        int event = reader.next();
+        while (true) {
+            // set if the next event has already been read
+            int nextEvent = -1;
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (depth == 2 && isRemoved(reader, removed)) {
+                        Utils.skip(reader);
+                        depth--;
+                        whitespace.setLength(0);
+                        break;
+                    }
+                    writer.writeCharacters(whitespace.toString());
+                    whitespace.setLength(0);
+                    StartTag startTag = new StartTag(reader);
+                    if (depth == 1) {
+                        startTag.write(writer, false);
+                        break;
+                    }
+                    // keeps <ga ... /> as it is, instead of <ga ...></ga>
+                    nextEvent = reader.next();
+                    if (nextEvent == XMLStreamConstants.END_ELEMENT) {
+                        startTag.write(writer, true);
+                        depth--;
+                        nextEvent = -1;
+                    } else {
+                        startTag.write(writer, false);
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 1 && !added.isEmpty()) {
+                        whitespace.setLength(0);
+                        writeEntries(writer, added);
+                    }
+                    writer.writeCharacters(whitespace.toString());
+                    whitespace.setLength(0);
+                    writer.writeEndElement();
+                    depth--;
+                    if (depth == 0) {
+                        writer.writeCharacters(NEWLINE);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.CDATA:
+                    if (depth == 0) {
+                        // line breaks outside the root element are written with the content
+                        break;
+                    }
+                    if (depth == 1 && reader.isWhiteSpace()) {
+                        whitespace.append(reader.getText());
+                        break;
+                    }
+                    writer.writeCharacters(whitespace.toString());
+                    whitespace.setLength(0);
+                    if (event == XMLStreamConstants.CDATA) {
+                        writer.writeCData(reader.getText());
+                    } else {
+                        writer.writeCharacters(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writer.writeCharacters(whitespace.toString());
+                    whitespace.setLength(0);
+                    writer.writeComment(reader.getText());
+                    if (depth == 0) {
+                        writer.writeCharacters(NEWLINE);
+                    }
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writer.writeCharacters(whitespace.toString());
+                    whitespace.setLength(0);
+                    writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                    if (depth == 0) {
+                        writer.writeCharacters(NEWLINE);
+                    }
+                    break;
+                case XMLStreamConstants.DTD:
+                    writer.writeDTD(reader.getText());
+                    writer.writeCharacters(NEWLINE);
+                    break;
+                default:
+                    // end of document is written by write()
+                    break;
+            }
+            if (nextEvent != -1) {
+                event = nextEvent;
+            } else if (reader.hasNext()) {
+                event = reader.next();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static boolean isRemoved(XMLStreamReader reader, Set<String> removed) {
+        if (removed.isEmpty() || !reader.getLocalName().equals("ga") || !Utils.namespaceOf(reader).isEmpty()) {
+            return false;
+        }
+        String address = reader.getAttributeValue(null, "address");
+        return address != null && removed.contains(address);
+    }
+
+    /**
+     * Writes empty entries for the given group addresses, each on its own
+     * lines and indented as in a new file, followed by a line break
+     *
+     * @param writer writer, positioned within the root element
+     * @param groupAddresses group addresses to write entries for
+     * @throws XMLStreamException
+     */
+    private static void writeEntries(XMLStreamWriter writer, List<GroupAddress> groupAddresses) throws XMLStreamException {
+        for (GroupAddress ga : groupAddresses) {
+            writer.writeCharacters(NEWLINE + INDENT);
+            writer.writeStartElement("ga");
+            writer.writeAttribute("address", ga.getAddress());
+            writer.writeAttribute("dpt", "");
+            writer.writeCharacters(NEWLINE + INDENT + INDENT);
+            // "--" is not allowed within a comment
+            writer.writeComment(" \"" + String.valueOf(ga.getName()).replace("--", "- -") + "\" ");
+            writer.writeCharacters(NEWLINE + INDENT);
+            writer.writeEndElement();
+        }
+        writer.writeCharacters(NEWLINE);
+    }
+
+    /**
+     * Copies the POSIX permissions of an existing file, if supported by the
+     * file system
+     *
+     * @param source file to copy the permissions of, may not exist
+     * @param target file to set the permissions of
+     * @throws IOException
+     */
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView == null || targetView == null) {
+            return;
+        }
+        Set<PosixFilePermission> permissions;
+        try {
+            permissions = sourceView.readAttributes().permissions();
+        } catch (NoSuchFileException ex) {
+            return;
+        }
+        targetView.setPermissions(permissions);
+    }
+
+    /**
+     * Name, namespace declarations and attributes of a start tag, in
+     * document order. Kept to write the tag after the next event has been
+     * read.
+     */
+    private static class StartTag {
+
+        private final String prefix;
+        private final String localName;
+        private final String namespaceUri;
+        private final String[] namespaces;
+        private final String[] attributes;
+
+        /**
+         *
+         * @param reader reader, positioned on the start of an element
+         */
+        StartTag(XMLStreamReader reader) {
+            prefix = reader.getPrefix() == null ? "" : reader.getPrefix();
+            localName = reader.getLocalName();
+            namespaceUri = Utils.namespaceOf(reader);
+            // prefix, URI
+            namespaces = new String[reader.getNamespaceCount() * 2];
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                namespaces[i * 2] = reader.getNamespacePrefix(i) == null ? "" : reader.getNamespacePrefix(i);
+                namespaces[i * 2 + 1] = reader.getNamespaceURI(i);
+            }
+            // prefix, namespace URI, local name, value
+            attributes = new String[reader.getAttributeCount() * 4];
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                attributes[i * 4] = reader.getAttributePrefix(i) == null ? "" : reader.getAttributePrefix(i);
+                attributes[i * 4 + 1] = reader.getAttributeNamespace(i) == null ? "" : reader.getAttributeNamespace(i);
+                attributes[i * 4 + 2] = reader.getAttributeLocalName(i);
+                attributes[i * 4 + 3] = reader.getAttributeValue(i);
+            }
+        }
+
+        void write(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
+            if (empty) {
+                writer.writeEmptyElement(prefix, localName, namespaceUri);
+            } else {
+                writer.writeStartElement(prefix, localName, namespaceUri);
+            }
+            for (int i = 0; i < namespaces.length; i += 2) {
+                writer.writeNamespace(namespaces[i], namespaces[i + 1]);
+            }
+            for (int i = 0; i < attributes.length; i += 4) {
+                if (attributes[i + 1].isEmpty()) {
+                    writer.writeAttribute(attributes[i + 2], attributes[i + 3]);
+                } else {
+                    writer.writeAttribute(attributes[i], attributes[i + 1], attributes[i + 2], attributes[i + 3]);
+                }
+            }
+        }
+    }
+
+}
@@ -18,9 +18,20 @@
  */
 package de.root1.ets4reader;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  *
@@ -28,21 +39,127 @@ import java.util.Map;
  */
 public class Utils {
 
-    static String getKeyForValue(Map<String, List<String>> refMap, String internalId) {
-        
-        Iterator<String> iterator = refMap.keySet().iterator();
-        while (iterator.hasNext()) {
-            String key = iterator.next();
-            List<String> list = refMap.get(key);
-            for (String value : list) {
-                if (value.equals(internalId)) {
-                    return key;
-                }
+    private static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    /**
+     * Creates a StAX input factory which doesn't resolve external entities
+     *
+     * @return input factory
+     */
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Creates a StAX stream reader. Can be called from several threads
+     * concurrently.
+     *
+     * @param in stream to read from
+     * @return stream reader
+     * @throws XMLStreamException
+     */
+    static XMLStreamReader createXMLStreamReader(InputStream in) throws XMLStreamException {
+        // XMLInputFactory is not guaranteed to be thread safe
+        synchronized (xmlInputFactory) {
+            return xmlInputFactory.createXMLStreamReader(in);
+        }
+    }
+
+    /**
+     * Creates a StAX stream writer which writes UTF-8. Can be called from
+     * several threads concurrently.
+     *
+     * @param out stream to write to, is not closed with the writer
+     * @return stream writer
+     * @throws XMLStreamException
+     */
+    static XMLStreamWriter createXMLStreamWriter(OutputStream out) throws XMLStreamException {
+        synchronized (xmlOutputFactory) {
+            return xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+        }
+    }
+
+    /**
+     * Namespace URI of the current element
+     *
+     * @param reader
+     * @return namespace URI, or empty string if element has no namespace
+     */
+    static String namespaceOf(XMLStreamReader reader) {
+        String uri = reader.getNamespaceURI();
+        return uri == null ? "" : uri;
+    }
+
+    /**
+     * Moves to the next child element of the current element
+     *
+     * @param reader
+     * @return true, if reader is positioned on the start of a child element,
+     * false if the end of the current element has been reached
+     * @throws XMLStreamException
+     */
+    static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
             }
         }
-        return null;
+        return false;
     }
-    
-    
-    
+
+    /**
+     * Skips the current element including all its content
+     *
+     * @param reader reader, positioned on the start of an element
+     * @throws XMLStreamException
+     */
+    static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current thread has been interrupted, f.i. because
+     * reading has been cancelled. The interrupt state is kept.
+     *
+     * @throws InterruptedIOException if the thread has been interrupted
+     */
+    static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Reading has been interrupted");
+        }
+    }
+
+    /**
+     * Moves a file to its target, replacing an existing target file. If
+     * supported by the file system, the file is moved atomically, so others
+     * either see the old or the new file, never a partially written one.
+     *
+     * @param source file to move, typically a temp file in the target's
+     * directory
+     * @param target target file
+     * @throws IOException
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
 }
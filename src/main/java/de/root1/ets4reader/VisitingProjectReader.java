@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLStreamException;
+import org.jdom2.JDOMException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads projects with the streaming parser and passes each device and group
+ * address to a {@link ProjectVisitor} as soon as it has been read. Group
+ * addresses are resolved one by one, against the devices read so far. ETS
+ * writes the topology of an installation before its group addresses, so all
+ * devices are known by then. Only the connection index of the devices is
+ * kept while reading a project, no lists of devices or group addresses.
+ *
+ * @author achristian
+ */
+class VisitingProjectReader {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ProjectArchive archive;
+    private final SymbolTable symbols;
+    private final LoadStatistics statistics;
+    private final ProjectVisitor visitor;
+    private final DptResolver resolver;
+
+    /**
+     *
+     * @param archive archive to read from
+     * @param options reader options
+     * @param symbols symbol table to canonicalize IDs with
+     * @param statistics statistics to count devices, group addresses and
+     * manufacturer files in
+     * @param visitor visitor to pass everything to
+     * @throws IOException if the DPT cache directory cannot be created
+     */
+    VisitingProjectReader(ProjectArchive archive, ReaderOptions options, SymbolTable symbols, LoadStatistics statistics, ProjectVisitor visitor) throws IOException {
+        this.archive = archive;
+        this.symbols = symbols;
+        this.statistics = statistics;
+        this.visitor = visitor;
+        this.resolver = new DptResolver(archive, options, null, symbols, statistics);
+    }
+
+    /**
+     * Reads a project and passes it to the visitor
+     *
+     * @param projFolder name of the project folder, f.i. P-05FA
+     * @param userConfiguration address <-> user configured DPT and name to
+     * apply to the project's group addresses, see
+     * {@link #readUserConfiguration(File)}. Null for none.
+     * @throws IOException
+     * @throws JDOMException
+     */
+    void read(String projFolder, final Map<String, UserConfiguration.Entry> userConfiguration) throws IOException, JDOMException {
+        final Project project = Project.readInformation(archive, projFolder);
+        log.info("Found project: {}", project);
+        visitor.onProject(project);
+
+        // GroupAddressRef-ID <-> connection to first device using the group address
+        final Map<String, DeviceConnection> connectionIndex = new HashMap<>();
+        final Set<String> configuredAddresses = new HashSet<>();
+
+        ProjectDataStreamReader.Handler handler = new ProjectDataStreamReader.Handler() {
+
+            @Override
+            public void device(Device device) {
+                DeviceConnection.index(device, connectionIndex);
+                statistics.countDevice();
+                visitor.onDevice(project, device);
+            }
+
+            @Override
+            public void groupAddress(GroupAddress groupAddress) throws IOException, JDOMException {
+                visitor.onGroupAddress(project, groupAddress);
+                resolver.resolve(groupAddress, connectionIndex.get(groupAddress.getInternalId()));
+                UserConfiguration.Entry config = userConfiguration != null ? userConfiguration.get(groupAddress.getAddress()) : null;
+                // first group address with a configured address wins
+                if (config != null && configuredAddresses.add(groupAddress.getAddress())) {
+                    groupAddress.setDataPointType(config.getDpt());
+                    groupAddress.setConnected(true);
+                    if (config.getName() != null) {
+                        groupAddress.setName(config.getName());
+                    }
+                    groupAddress.setUserConfigured(true);
+                }
+                resolved(project, groupAddress);
+            }
+
+            @Override
+            public void groupRange(GroupRange groupRange) {
+                // not of interest for visitors
+            }
+        };
+
+        String dataFile = Project.getDataFile(projFolder);
+        try (InputStream in = archive.open(dataFile)) {
+            new ProjectDataStreamReader(handler, symbols, false).read(in, project.getInternalId());
+        } catch (XMLStreamException ex) {
+            throw new JDOMException("Error reading " + dataFile, ex);
+        }
+
+        if (userConfiguration != null) {
+            for (UserConfiguration.Entry entry : userConfiguration.values()) {
+                if (!configuredAddresses.contains(entry.getAddress())) {
+                    GroupAddress groupAddress = new GroupAddress(entry.getAddress(), entry.getDpt(), entry.getName());
+                    visitor.onGroupAddress(project, groupAddress);
+                    groupAddress.setConnected(true);
+                    groupAddress.setUserConfigured(true);
+                    resolved(project, groupAddress);
+                }
+            }
+        }
+    }
+
+    private void resolved(Project project, GroupAddress groupAddress) {
+        statistics.countGroupAddress(groupAddress);
+        visitor.onDptResolved(project, groupAddress);
+    }
+
+    /**
+     * Reads the group addresses of a user configuration file
+     * (.knxproj.user.xml) which have a DPT. The file is not changed.
+     *
+     * @param userConfigFile
+     * @return address <-> configuration, see
+     * {@link UserConfiguration#getEffectiveEntries()}. Empty if the file does
+     * not exist
+     * @throws IOException
+     * @throws JDOMException
+     */
+    static Map<String, UserConfiguration.Entry> readUserConfiguration(File userConfigFile) throws IOException, JDOMException {
+        return UserConfiguration.read(userConfigFile).getEffectiveEntries();
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the entries directly out of the .knxproj zip file. Nothing is
+ * extracted, only the entries which are opened are inflated.
+ *
+ * @author achristian
+ */
+class ZipProjectArchive implements ProjectArchive {
+
+    private final ZipFile zipFile;
+    private final List<String> folders;
+
+    ZipProjectArchive(File knxprojFile) throws IOException {
+        zipFile = new ZipFile(knxprojFile);
+
+        Set<String> folderSet = new LinkedHashSet<>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            int index = name.indexOf('/');
+            if (index > 0) {
+                folderSet.add(name.substring(0, index));
+            }
+        }
+        folders = new ArrayList<>(folderSet);
+    }
+
+    @Override
+    public List<String> getFolders() {
+        return folders;
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return zipFile.getEntry(path) != null;
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        ZipEntry entry = zipFile.getEntry(path);
+        if (entry == null) {
+            throw new FileNotFoundException("Entry '" + path + "' not found in " + zipFile.getName());
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    @Override
+    public long getCrc(String path) {
+        ZipEntry entry = zipFile.getEntry(path);
+        return entry == null ? -1 : entry.getCrc();
+    }
+
+    @Override
+    public long getSize(String path) {
+        ZipEntry entry = zipFile.getEntry(path);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+}
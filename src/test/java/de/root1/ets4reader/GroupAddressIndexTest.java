@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 Alexander Christian <alex(at)root1.de>. All rights reserved.
+ * 
+ * This file is part of ETS4Reader.
+ *
+ *   ETS4Reader is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   ETS4Reader is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with ETS4Reader.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.root1.ets4reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the queries of {@link GroupAddressIndex} against a plain scan of
+ * the group addresses, with unspecified DPTs, unconnected group addresses
+ * and addresses which are not in the form main/middle/sub mixed in
+ *
+ * @author achristian
+ */
+public class GroupAddressIndexTest {
+
+    private List<GroupAddress> groupAddresses;
+    private GroupAddressIndex index;
+
+    @Before
+    public void setUp() {
+        groupAddresses = new ArrayList<>();
+        add("1/1/3", "1.001", true);
+        add("0/0/1", null, false);
+        add("31/7/255", "9.001", true);
+        add("1/1/1", "1.001", false);
+        add("free text", "1.001", true);
+        add("1/1/2", null, true);
+        add("0/0/0", "1.002", true);
+        add("1/2/0", "5.001", false);
+        add("1/1/1", "1.001", true);
+        add("2/0/0", null, false);
+        // main types from 0x8000 only sort correctly with unsigned keys
+        add("3/0/0", "32768.001", true);
+        add("3/0/1", "65535.065535", false);
+        add("16/0/0", "9.001", true);
+        index = new GroupAddressIndex(groupAddresses);
+    }
+
+    private void add(String address, String dpt, boolean connected) {
+        GroupAddress ga = new GroupAddress(address, dpt == null ? DataPointType.UNSPECIFIED : DataPointType.parse(dpt), "GA " + address);
+        ga.setConnected(connected);
+        groupAddresses.add(ga);
+    }
+
+    @Test
+    public void testSorted() {
+        assertEquals(Arrays.asList("0/0/0", "0/0/1", "1/1/1", "1/1/1", "1/1/2", "1/1/3", "1/2/0", "2/0/0",
+                "3/0/0", "3/0/1", "16/0/0", "31/7/255", "free text"), addresses(index.getSorted()));
+    }
+
+    @Test
+    public void testRange() {
+        assertEquals(Arrays.asList("1/1/1", "1/1/1", "1/1/2", "1/1/3"), addresses(index.getRange(raw("1/1/0"), raw("1/1/255"))));
+        assertEquals(Arrays.asList("1/1/2", "1/1/3", "1/2/0"), addresses(index.getRange(raw("1/1/2"), raw("1/2/0"))));
+        assertEquals(Arrays.asList("0/0/0"), addresses(index.getRange(0, 0)));
+        assertEquals(Arrays.asList("31/7/255"), addresses(index.getRange(raw("31/0/0"), 0xFFFF)));
+        assertEquals(12, index.getRange(0, 0xFFFF).size());
+        assertTrue(index.getRange(raw("4/0/0"), raw("15/7/255")).isEmpty());
+        assertTrue(index.getRange(raw("1/1/3"), raw("1/1/2")).isEmpty());
+    }
+
+    @Test
+    public void testByDataPointType() {
+        int[][] queries = {
+            {1, 1, 1},
+            {1, 0, 0xFFFF},
+            {1, 2, 2},
+            {5, 0, 0xFFFF},
+            {9, 1, 1},
+            {7, 0, 0xFFFF},
+            {0x8000, 0, 0xFFFF},
+            {0xFFFF, 0xFFFF, 0xFFFF},
+            {GroupAddress.UNSPECIFIED, GroupAddress.UNSPECIFIED, GroupAddress.UNSPECIFIED}
+        };
+        for (int[] query : queries) {
+            List<GroupAddress> expected = new ArrayList<>();
+            for (GroupAddress ga : index.getSorted()) {
+                if (ga.getMainType() == query[0] && ga.getSubType() >= query[1] && ga.getSubType() <= query[2]) {
+                    expected.add(ga);
+                }
+            }
+            // sorted by DPT, equal DPTs stay sorted by address
+            Collections.sort(expected, new Comparator<GroupAddress>() {
+
+                @Override
+                public int compare(GroupAddress ga1, GroupAddress ga2) {
+                    return Integer.compare(ga1.getSubType(), ga2.getSubType());
+                }
+            });
+            assertEquals(Arrays.toString(query), expected, index.getByDataPointType(query[0], query[1], query[2]));
+        }
+        assertEquals(Arrays.asList("1/1/1", "1/1/1", "1/1/3", "free text"), addresses(index.getByDataPointType(1, 1, 1)));
+        assertEquals(Arrays.asList("0/0/1", "1/1/2", "2/0/0"),
+                addresses(index.getByDataPointType(GroupAddress.UNSPECIFIED, GroupAddress.UNSPECIFIED, GroupAddress.UNSPECIFIED)));
+    }
+
+    @Test
+    public void testUnconnected() {
+        assertEquals(Arrays.asList("0/0/1", "1/1/1", "1/2/0", "2/0/0", "3/0/1"), addresses(index.getUnconnected()));
+    }
+
+    @Test
+    public void testEmpty() {
+        GroupAddressIndex empty = new GroupAddressIndex(new ArrayList<GroupAddress>());
+        assertTrue(empty.getSorted().isEmpty());
+        assertTrue(empty.getRange(0, 0xFFFF).isEmpty());
+        assertTrue(empty.getByDataPointType(1, 0, 0xFFFF).isEmpty());
+        assertTrue(empty.getUnconnected().isEmpty());
+    }
+
+    private static int raw(String address) {
+        return GroupAddressTable.toRawAddress(address);
+    }
+
+    private static List<String> addresses(List<GroupAddress> groupAddresses) {
+        List<String> addresses = new ArrayList<>();
+        for (GroupAddress ga : groupAddresses) {
+            addresses.add(ga.getAddress());
+        }
+        return addresses;
+    }
+
+}